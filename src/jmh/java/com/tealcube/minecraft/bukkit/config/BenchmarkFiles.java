@@ -0,0 +1,160 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the generated YAML files the benchmarks run against. Settings are grouped ten to a section and cycle
+ * through every type the typed getters read, so a file of n keys holds n / 10 sections.
+ */
+final class BenchmarkFiles {
+
+    static final String STRING = "name";
+    static final String INT = "amount";
+    static final String LONG = "expiry";
+    static final String DOUBLE = "chance";
+    static final String BOOLEAN = "enabled";
+    static final String LIST = "worlds";
+    private static final String[] FIELDS = {STRING, INT, LONG, DOUBLE, BOOLEAN, LIST, "display-name", "weight",
+            "cooldown", "permission"};
+
+    private BenchmarkFiles() {
+        // do nothing
+    }
+
+    static File temporaryDirectory() throws IOException {
+        File directory = Files.createTempDirectory("config-benchmark").toFile();
+        directory.deleteOnExit();
+        return directory;
+    }
+
+    /**
+     * Writes a YAML file with a version line and {@code keys} settings.
+     *
+     * @param file    file to write
+     * @param keys    number of settings
+     * @param version value of the version setting
+     * @return the file
+     * @throws IOException if the file cannot be written
+     */
+    static File write(File file, int keys, String version) throws IOException {
+        StringBuilder builder = new StringBuilder(keys * 32);
+        builder.append("version: ").append(version).append('\n');
+        for (int section = 0; section * FIELDS.length < keys; section++) {
+            builder.append("section-").append(section).append(":\n");
+            for (int field = 0; field < FIELDS.length && section * FIELDS.length + field < keys; field++) {
+                builder.append("  ").append(FIELDS[field]).append(": ").append(value(FIELDS[field], section))
+                        .append('\n');
+            }
+        }
+        Files.write(file.toPath(), builder.toString().getBytes(StandardCharsets.UTF_8));
+        file.deleteOnExit();
+        return file;
+    }
+
+    /**
+     * Writes the settings of a YAML file to a file of another format next to it, named after the YAML file with the
+     * format's extension.
+     *
+     * @param yaml   YAML file to convert
+     * @param format format to write
+     * @return the file
+     * @throws IOException if the file cannot be written
+     */
+    static File convert(File yaml, ConfigFormat format) throws IOException {
+        String name = yaml.getName();
+        File file = new File(yaml.getParentFile(), name.substring(0, name.lastIndexOf('.') + 1) +
+                format.getExtensions()[0]);
+        if (format == ConfigFormat.YAML) {
+            Files.copy(yaml.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            SmartYamlConfiguration source = new SmartYamlConfiguration(yaml);
+            SmartYamlConfiguration target = format == ConfigFormat.JSON ? new SmartJsonConfiguration() :
+                    new SmartPropertiesConfiguration();
+            for (String key : source.getKeys(true)) {
+                if (!source.isConfigurationSection(key)) {
+                    target.set(key, source.get(key));
+                }
+            }
+            target.save(file);
+        }
+        file.deleteOnExit();
+        return file;
+    }
+
+    /**
+     * Gets the keys a file written by {@link #write(File, int, String)} has once it is loaded into a
+     * {@link MasterConfiguration}, for one field of every section.
+     *
+     * @param name  name of the file without its extension
+     * @param keys  number of settings in the file
+     * @param field field to list
+     * @return keys of that field
+     */
+    static String[] masterKeys(String name, int keys, String field) {
+        int index = indexOf(field);
+        List<String> found = new ArrayList<>();
+        for (int section = 0; section * FIELDS.length + index < keys; section++) {
+            found.add(name + ".section-" + section + "." + field);
+        }
+        return found.toArray(new String[found.size()]);
+    }
+
+    private static int indexOf(String field) {
+        for (int i = 0; i < FIELDS.length; i++) {
+            if (FIELDS[i].equals(field)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(field);
+    }
+
+    private static String value(String field, int section) {
+        switch (field) {
+            case INT:
+            case "weight":
+            case "cooldown":
+                return String.valueOf(section % 1000);
+            case LONG:
+                return String.valueOf(10000000000L + section);
+            case DOUBLE:
+                return String.valueOf(section / 1000.0);
+            case BOOLEAN:
+                return String.valueOf(section % 2 == 0);
+            case LIST:
+                return "[world, world_nether, world_the_end]";
+            case "permission":
+                return "config.section." + section;
+            default:
+                return "'Section " + section + "'";
+        }
+    }
+
+}
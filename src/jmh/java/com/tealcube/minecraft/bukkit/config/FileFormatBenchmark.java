@@ -0,0 +1,92 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the file formats on the same generated settings: loading a configuration, loading and flattening it into
+ * a {@link MasterConfiguration}, reading the file straight into flattened settings without applying them, and
+ * streaming the file into a MasterConfiguration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileFormatBenchmark {
+
+    @Param({"YAML", "JSON", "PROPERTIES"})
+    public ConfigFormat format;
+
+    @Param({"1000", "10000", "100000"})
+    public int keys;
+
+    private File file;
+    private SmartConfiguration configuration;
+
+    @Setup
+    public void setUp() throws IOException {
+        File yaml = BenchmarkFiles.write(new File(BenchmarkFiles.temporaryDirectory(), "bench.yml"), keys, "1.0.0");
+        file = BenchmarkFiles.convert(yaml, format);
+        configuration = format.load(file);
+    }
+
+    @Benchmark
+    public SmartConfiguration load() {
+        configuration.load();
+        return configuration;
+    }
+
+    @Benchmark
+    public MasterConfiguration loadAndFlatten() {
+        return MasterConfiguration.loadFromFiles(format.load(file));
+    }
+
+    @Benchmark
+    public Map<String, ConfigValue> flattenFile() {
+        return format.deferred(file).flattenFile("bench.");
+    }
+
+    @Benchmark
+    public MasterConfiguration stream() {
+        return MasterConfiguration.loadFromFiles(file);
+    }
+
+}
@@ -0,0 +1,147 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Reports how much heap a {@link MasterConfiguration} retains for a large generated configuration, next to the
+ * string keyed layout it replaced: a hash map from every full key to its value, plus the set of keys each source
+ * owns. JMH does not measure retained memory, so this runs on its own:
+ * <pre>
+ * java -cp target/Config-benchmarks.jar com.tealcube.minecraft.bukkit.config.MasterMemoryReport [keys]
+ * </pre>
+ * Keys look like {@code loot.loot-tables.dungeon.tier-3.item-42.weight} and default to 400000. Run it with a
+ * single, serial collector ({@code -XX:+UseSerialGC}) for steady numbers.
+ */
+public final class MasterMemoryReport {
+
+    private static final String[] FIELDS = {"name", "weight", "amount", "chance", "enabled"};
+    private static final int ITEMS_PER_TIER = 100;
+
+    private static volatile Object kept;
+
+    private MasterMemoryReport() {
+        // do nothing
+    }
+
+    public static void main(String[] args) throws IOException {
+        int keys = args.length > 0 ? Integer.parseInt(args[0]) : 400000;
+        File file = write(new File(BenchmarkFiles.temporaryDirectory(), "loot.yml"), keys);
+        Map<String, Object> settings = new LinkedHashMap<>();
+        MasterConfiguration.loadFromFiles(file).forEach(settings::put);
+
+        System.out.printf("%d keys%n", settings.size());
+        report("compact, loaded from the file", settings.size(), () -> MasterConfiguration.loadFromFiles(file));
+        report("compact, set with setAll", settings.size(), () -> {
+            MasterConfiguration master = new MasterConfiguration();
+            master.setAll(settings);
+            return master;
+        });
+        report("string keyed, loaded from the file", settings.size(), () -> stringKeyed(settings, true));
+        report("string keyed, set directly", settings.size(), () -> stringKeyed(settings, false));
+    }
+
+    /**
+     * Builds the layout the key table replaced. Every key is a string of its own, as it is when parsed from a file,
+     * and a loaded file also records the keys it owns.
+     */
+    private static Object stringKeyed(Map<String, Object> settings, boolean loaded) {
+        Map<String, ConfigValue> values = new HashMap<>();
+        Set<String> owned = new HashSet<>();
+        for (Map.Entry<String, Object> entry : settings.entrySet()) {
+            String key = new String(entry.getKey().toCharArray());
+            values.put(key, ConfigValue.of(entry.getValue()));
+            if (loaded) {
+                owned.add(key);
+            }
+        }
+        return new Object[]{values, owned};
+    }
+
+    private static void report(String name, int keys, Supplier<Object> build) {
+        long before = usedAfterGc();
+        kept = build.get();
+        long retained = usedAfterGc() - before;
+        kept = null;
+        System.out.printf("%-36s %8.1f MB %6d B/key%n", name, retained / 1048576.0, retained / keys);
+    }
+
+    private static long usedAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static File write(File file, int keys) throws IOException {
+        StringBuilder builder = new StringBuilder(keys * 24);
+        builder.append("loot-tables:\n  dungeon:\n");
+        int tiers = (keys + FIELDS.length * ITEMS_PER_TIER - 1) / (FIELDS.length * ITEMS_PER_TIER);
+        int written = 0;
+        for (int tier = 0; tier < tiers; tier++) {
+            builder.append("    tier-").append(tier).append(":\n");
+            for (int item = 0; item < ITEMS_PER_TIER && written < keys; item++) {
+                builder.append("      item-").append(item).append(":\n");
+                for (int field = 0; field < FIELDS.length && written < keys; field++, written++) {
+                    builder.append("        ").append(FIELDS[field]).append(": ").append(value(field, tier, item))
+                            .append('\n');
+                }
+            }
+        }
+        Files.write(file.toPath(), builder.toString().getBytes(StandardCharsets.UTF_8));
+        file.deleteOnExit();
+        return file;
+    }
+
+    private static String value(int field, int tier, int item) {
+        switch (field) {
+            case 0:
+                return "'Item " + tier + "-" + item + "'";
+            case 3:
+                return String.valueOf(item / 100.0);
+            case 4:
+                return String.valueOf(item % 2 == 0);
+            default:
+                return String.valueOf(tier * ITEMS_PER_TIER + item);
+        }
+    }
+
+}
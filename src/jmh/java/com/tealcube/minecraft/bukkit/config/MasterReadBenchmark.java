@@ -0,0 +1,175 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the string keyed getters of a loaded {@link MasterConfiguration}. Every reader thread walks the keys
+ * from its own position, and the nested classes run the same benchmarks with 1, 8 and 32 readers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class MasterReadBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Settings {
+
+        @Param({"1000", "10000", "100000"})
+        public int keys;
+
+        MasterConfiguration master;
+        String[] strings;
+        String[] ints;
+        String[] longs;
+        String[] doubles;
+        String[] booleans;
+        String[] lists;
+        String[] missing;
+        String[] sections;
+
+        @Setup
+        public void setUp() throws IOException {
+            File file = BenchmarkFiles.write(new File(BenchmarkFiles.temporaryDirectory(), "bench.yml"), keys,
+                    "1.0.0");
+            master = MasterConfiguration.loadFromFiles(new SmartYamlConfiguration(file));
+            strings = BenchmarkFiles.masterKeys("bench", keys, BenchmarkFiles.STRING);
+            ints = BenchmarkFiles.masterKeys("bench", keys, BenchmarkFiles.INT);
+            longs = BenchmarkFiles.masterKeys("bench", keys, BenchmarkFiles.LONG);
+            doubles = BenchmarkFiles.masterKeys("bench", keys, BenchmarkFiles.DOUBLE);
+            booleans = BenchmarkFiles.masterKeys("bench", keys, BenchmarkFiles.BOOLEAN);
+            lists = BenchmarkFiles.masterKeys("bench", keys, BenchmarkFiles.LIST);
+            missing = new String[strings.length];
+            for (int i = 0; i < strings.length; i++) {
+                missing[i] = strings[i] + "-missing";
+            }
+            sections = new String[strings.length];
+            for (int i = 0; i < strings.length; i++) {
+                sections[i] = strings[i].substring(0, strings[i].lastIndexOf('.'));
+            }
+        }
+
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next = (int) (Thread.currentThread().getId() * 7919);
+
+        int next(int length) {
+            next = next + 1 < 0 ? 0 : next + 1;
+            return next % length;
+        }
+
+    }
+
+    @Benchmark
+    public String getString(Settings settings, Cursor cursor) {
+        return settings.master.getString(settings.strings[cursor.next(settings.strings.length)]);
+    }
+
+    @Benchmark
+    public int getInt(Settings settings, Cursor cursor) {
+        return settings.master.getInt(settings.ints[cursor.next(settings.ints.length)]);
+    }
+
+    @Benchmark
+    public long getLong(Settings settings, Cursor cursor) {
+        return settings.master.getLong(settings.longs[cursor.next(settings.longs.length)]);
+    }
+
+    @Benchmark
+    public double getDouble(Settings settings, Cursor cursor) {
+        return settings.master.getDouble(settings.doubles[cursor.next(settings.doubles.length)]);
+    }
+
+    @Benchmark
+    public boolean getBoolean(Settings settings, Cursor cursor) {
+        return settings.master.getBoolean(settings.booleans[cursor.next(settings.booleans.length)]);
+    }
+
+    @Benchmark
+    public List<String> getStringList(Settings settings, Cursor cursor) {
+        return settings.master.getStringList(settings.lists[cursor.next(settings.lists.length)]);
+    }
+
+    @Benchmark
+    public boolean getStringSetContains(Settings settings, Cursor cursor) {
+        return settings.master.getStringSet(settings.lists[cursor.next(settings.lists.length)]).contains("world");
+    }
+
+    @Benchmark
+    public boolean isSet(Settings settings, Cursor cursor) {
+        return settings.master.isSet(settings.strings[cursor.next(settings.strings.length)]);
+    }
+
+    @Benchmark
+    public boolean isSetMissing(Settings settings, Cursor cursor) {
+        return settings.master.isSet(settings.missing[cursor.next(settings.missing.length)]);
+    }
+
+    @Benchmark
+    public void forEachWithPrefix(Settings settings, Cursor cursor, Blackhole blackhole) {
+        settings.master.forEachWithPrefix(settings.sections[cursor.next(settings.sections.length)] + ".",
+                (key, value) -> blackhole.consume(value));
+    }
+
+    @Benchmark
+    public Set<String> getChildren(Settings settings, Cursor cursor) {
+        return settings.master.getChildren(settings.sections[cursor.next(settings.sections.length)]);
+    }
+
+    @Threads(1)
+    public static class OneReader extends MasterReadBenchmark {
+    }
+
+    @Threads(8)
+    public static class EightReaders extends MasterReadBenchmark {
+    }
+
+    @Threads(32)
+    public static class ThirtyTwoReaders extends MasterReadBenchmark {
+    }
+
+}
@@ -0,0 +1,82 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link VersionedSmartYamlConfiguration#update()} for every update type. The local file is written again
+ * before each call, holds nine tenths of the settings of the file it is checked against, and is always out of date.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+public class VersionUpdateBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int keys;
+
+    @Param
+    public VersionedConfiguration.VersionUpdateType updateType;
+
+    private File directory;
+    private File template;
+    private VersionedSmartYamlConfiguration configuration;
+
+    @Setup(Level.Trial)
+    public void writeTemplate() throws IOException {
+        directory = BenchmarkFiles.temporaryDirectory();
+        template = BenchmarkFiles.write(new File(directory, "template.yml"), keys, "1.0.0");
+        new File(directory, "bench.yml.backup").deleteOnExit();
+    }
+
+    @Setup(Level.Invocation)
+    public void writeLocal() throws IOException {
+        File local = BenchmarkFiles.write(new File(directory, "bench.yml"), keys - keys / 10, "2.0.0");
+        configuration = new VersionedSmartYamlConfiguration(local, template, updateType);
+    }
+
+    @Benchmark
+    public boolean update() {
+        return configuration.update();
+    }
+
+}
@@ -0,0 +1,241 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A compact binary copy of a parsed YAML file, stamped with the size, modification time and checksum of the file it
+ * was made from. Reading it back skips YAML parsing entirely, so it is only trusted while the stamp still matches.
+ */
+final class BinaryConfigCache {
+
+    private static final int MAGIC = 0x53594331;
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte BOOLEAN = 5;
+    private static final byte LIST = 6;
+    private static final byte MAP = 7;
+
+    private BinaryConfigCache() {
+        // do nothing
+    }
+
+    static long checksum(byte[] contents) {
+        CRC32 crc = new CRC32();
+        crc.update(contents, 0, contents.length);
+        return crc.getValue();
+    }
+
+    /**
+     * Reads a cache file back into the nested maps a YAML parse would have produced.
+     *
+     * @param cache    cache file
+     * @param size     size of the source file
+     * @param modified modification time of the source file
+     * @param checksum checksum of the source file
+     * @return cached contents, or null if there is no usable cache for this stamp
+     */
+    static Contents read(File cache, long size, long modified, long checksum) {
+        if (cache == null || !cache.isFile()) {
+            return null;
+        }
+        try {
+            // copied onto the heap rather than mapped: everything is decoded right away, and a mapping would hold
+            // the file open until it is collected, keeping the next write from replacing it on some platforms
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(cache.toPath()));
+            if (buffer.getInt() != MAGIC || buffer.getLong() != size || buffer.getLong() != modified ||
+                    buffer.getLong() != checksum) {
+                return null;
+            }
+            String header = buffer.get() == NULL ? null : readString(buffer);
+            Object root = readValue(buffer);
+            if (!(root instanceof Map)) {
+                return null;
+            }
+            return new Contents(header, (Map<?, ?>) root);
+        } catch (IOException | RuntimeException e) {
+            // a truncated or foreign file is just a cache miss
+            return null;
+        }
+    }
+
+    /**
+     * Writes a cache file for a configuration.
+     *
+     * @param cache    cache file
+     * @param size     size of the source file
+     * @param modified modification time of the source file
+     * @param checksum checksum of the source file
+     * @param header   header of the configuration
+     * @param root     contents of the configuration
+     * @throws IOException if the cache cannot be written or holds a value the cache cannot store
+     */
+    static void write(File cache, long size, long modified, long checksum, String header,
+                      ConfigurationSection root) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeLong(size);
+        out.writeLong(modified);
+        out.writeLong(checksum);
+        if (header == null) {
+            out.writeByte(NULL);
+        } else {
+            out.writeByte(STRING);
+            writeString(out, header);
+        }
+        writeValue(out, root);
+        out.flush();
+        SmartYamlConfiguration.writeAtomically(cache, bytes.toByteArray());
+    }
+
+    static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            out.writeByte(LIST);
+            out.writeInt(list.size());
+            for (Object element : list) {
+                writeValue(out, element);
+            }
+        } else if (value instanceof ConfigurationSection) {
+            Map<String, Object> values = ((ConfigurationSection) value).getValues(false);
+            out.writeByte(MAP);
+            out.writeInt(values.size());
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                writeValue(out, entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.writeByte(MAP);
+            out.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(out, entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+        } else {
+            throw new IOException("Cannot cache values of type " + value.getClass().getName());
+        }
+    }
+
+    static Object readValue(ByteBuffer buffer) {
+        byte type = buffer.get();
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(buffer);
+            case INT:
+                return buffer.getInt();
+            case LONG:
+                return buffer.getLong();
+            case DOUBLE:
+                return buffer.getDouble();
+            case BOOLEAN:
+                return buffer.get() != 0;
+            case LIST:
+                int length = buffer.getInt();
+                List<Object> list = new ArrayList<>(length);
+                for (int i = 0; i < length; i++) {
+                    list.add(readValue(buffer));
+                }
+                return list;
+            case MAP:
+                int size = buffer.getInt();
+                Map<Object, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    map.put(readValue(buffer), readValue(buffer));
+                }
+                return map;
+            default:
+                throw new IllegalArgumentException("Unknown value type " + type);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static final class Contents {
+
+        private final String header;
+        private final Map<?, ?> root;
+
+        private Contents(String header, Map<?, ?> root) {
+            this.header = header;
+            this.root = root;
+        }
+
+        String header() {
+            return header;
+        }
+
+        Map<?, ?> root() {
+            return root;
+        }
+
+    }
+
+}
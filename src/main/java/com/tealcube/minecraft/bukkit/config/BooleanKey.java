@@ -0,0 +1,56 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+/**
+ * A handle for a boolean setting of a {@link MasterConfiguration}.
+ */
+public final class BooleanKey extends ConfigKey<Boolean> {
+
+    private final boolean fallback;
+
+    BooleanKey(MasterConfiguration configuration, String key, boolean fallback) {
+        super(configuration, key);
+        this.fallback = fallback;
+    }
+
+    /**
+     * Gets the current value, or the fallback if the key is not set or cannot be read as a boolean.
+     *
+     * @return current value
+     */
+    public boolean get() {
+        ConfigValue val = read(ConfigValue::isBoolean);
+        return val == null ? fallback : val.asBoolean(fallback);
+    }
+
+    @Override
+    public Boolean getValue() {
+        return get();
+    }
+
+    public boolean getFallback() {
+        return fallback;
+    }
+
+}
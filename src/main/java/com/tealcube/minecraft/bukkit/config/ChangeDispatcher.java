@@ -0,0 +1,145 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * Routes the changes of a {@link MasterConfiguration} to the subscriptions whose key or prefix they touch.
+ * <p>
+ * Commits {@link #publish(ConfigChanges) publish} their changes while they still hold the locks of the namespaces
+ * they changed, and then {@link #drain() drain} the queue outside of them. Only one thread drains at a time, so
+ * listeners see the changes of a namespace in the order they were committed even when several threads commit at
+ * once; a thread that finds another one draining leaves its changes to it.
+ */
+final class ChangeDispatcher {
+
+    private final Map<String, List<ConfigSubscription>> exact = new ConcurrentHashMap<>();
+    private final List<ConfigSubscription> prefixed = new CopyOnWriteArrayList<>();
+    private final ArrayDeque<ConfigChanges> queue = new ArrayDeque<>();
+    private boolean draining;
+
+    ConfigSubscription add(String key, boolean prefix, ConfigListener listener, Executor executor,
+                           boolean coalesce) {
+        if (key == null || listener == null) {
+            throw new IllegalArgumentException("key and listener cannot be null");
+        }
+        ConfigSubscription subscription = new ConfigSubscription(this, key, prefix, listener, executor, coalesce);
+        if (prefix) {
+            prefixed.add(subscription);
+        } else {
+            exact.compute(key, (k, subscriptions) -> {
+                List<ConfigSubscription> updated = subscriptions == null ?
+                        new CopyOnWriteArrayList<ConfigSubscription>() : subscriptions;
+                updated.add(subscription);
+                return updated;
+            });
+        }
+        return subscription;
+    }
+
+    void remove(ConfigSubscription subscription) {
+        if (subscription.isPrefix()) {
+            prefixed.remove(subscription);
+            return;
+        }
+        exact.computeIfPresent(subscription.getKey(), (key, subscriptions) -> {
+            subscriptions.remove(subscription);
+            return subscriptions.isEmpty() ? null : subscriptions;
+        });
+    }
+
+    boolean isEmpty() {
+        return prefixed.isEmpty() && exact.isEmpty();
+    }
+
+    void publish(ConfigChanges changes) {
+        if (changes.isEmpty() || isEmpty()) {
+            return;
+        }
+        synchronized (queue) {
+            queue.add(changes);
+        }
+    }
+
+    void drain() {
+        while (true) {
+            ConfigChanges changes;
+            synchronized (queue) {
+                if (draining || queue.isEmpty()) {
+                    return;
+                }
+                changes = queue.poll();
+                draining = true;
+            }
+            try {
+                dispatch(changes);
+            } finally {
+                synchronized (queue) {
+                    draining = false;
+                }
+            }
+        }
+    }
+
+    private void dispatch(ConfigChanges changes) {
+        if (changes.isEmpty() || isEmpty()) {
+            return;
+        }
+        Map<ConfigSubscription, Map<String, ConfigChange>> batches = new IdentityHashMap<>();
+        for (ConfigChange change : changes) {
+            List<ConfigSubscription> subscriptions = exact.get(change.getKey());
+            if (subscriptions != null) {
+                for (ConfigSubscription subscription : subscriptions) {
+                    batch(batches, subscription).put(change.getKey(), change);
+                }
+            }
+            for (ConfigSubscription subscription : prefixed) {
+                if (change.getKey().startsWith(subscription.getKey())) {
+                    batch(batches, subscription).put(change.getKey(), change);
+                }
+            }
+        }
+        for (Map.Entry<ConfigSubscription, Map<String, ConfigChange>> batch : batches.entrySet()) {
+            batch.getKey().deliver(new ConfigChanges(changes.getGeneration(), batch.getValue()));
+        }
+    }
+
+    private static Map<String, ConfigChange> batch(Map<ConfigSubscription, Map<String, ConfigChange>> batches,
+                                                   ConfigSubscription subscription) {
+        Map<String, ConfigChange> batch = batches.get(subscription);
+        if (batch == null) {
+            batch = new LinkedHashMap<>();
+            batches.put(subscription, batch);
+        }
+        return batch;
+    }
+
+}
@@ -0,0 +1,508 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Fills the {@link ConfigPath} fields of objects from the settings under a prefix of a {@link MasterConfiguration}.
+ * <p>
+ * The fields of a class are looked up once and turned into method handles, and a binding resolves the key of every
+ * field once, the same way handles do. Updating an object then reads each setting from the current settings of its
+ * namespace and writes the field through its handle, without reflection, boxing of primitive fields or map lookups,
+ * so code can read plain fields and rebind them all at once after a reload.
+ * <p>
+ * Fields may be {@code boolean}, {@code int}, {@code long}, {@code double}, {@code float}, their boxed types,
+ * {@code String}, {@code List<String>}, {@code Set<String>}, {@code int[]}, {@code long[]}, {@code double[]}, an
+ * enum, {@link NumberRange} or {@code Object} for the raw value. A field whose setting is not set, or cannot be read
+ * as the type of the field, keeps its current value, so field initializers act as fallbacks.
+ *
+ * @param <T> type of the bound objects
+ */
+public final class ConfigBinding<T> {
+
+    private static final ConfigConverter<int[]> INT_ARRAY = value -> {
+        if (!(value instanceof List)) {
+            return null;
+        }
+        List<?> list = (List<?>) value;
+        int[] array = new int[list.size()];
+        try {
+            for (int i = 0; i < array.length; i++) {
+                array[i] = Integer.parseInt(String.valueOf(list.get(i)).trim());
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return array;
+    };
+
+    private static final ConfigConverter<long[]> LONG_ARRAY = value -> {
+        if (!(value instanceof List)) {
+            return null;
+        }
+        List<?> list = (List<?>) value;
+        long[] array = new long[list.size()];
+        try {
+            for (int i = 0; i < array.length; i++) {
+                array[i] = Long.parseLong(String.valueOf(list.get(i)).trim());
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return array;
+    };
+
+    private static final ConfigConverter<double[]> DOUBLE_ARRAY = value -> {
+        if (!(value instanceof List)) {
+            return null;
+        }
+        List<?> list = (List<?>) value;
+        double[] array = new double[list.size()];
+        try {
+            for (int i = 0; i < array.length; i++) {
+                array[i] = Double.parseDouble(String.valueOf(list.get(i)).trim());
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return array;
+    };
+
+    private static final ClassValue<Plan> PLANS = new ClassValue<Plan>() {
+        @Override
+        protected Plan computeValue(Class<?> type) {
+            return plan(type);
+        }
+    };
+
+    private final MasterConfiguration configuration;
+    private final Class<T> type;
+    private final String prefix;
+    private final Plan plan;
+    private final String[] keys;
+    private final ConfigShard[] shards;
+    private final int[] shardOf;
+    private final KeyId[] ids;
+
+    ConfigBinding(MasterConfiguration configuration, Class<T> type, String prefix) {
+        if (configuration == null || type == null) {
+            throw new IllegalArgumentException("configuration and type cannot be null");
+        }
+        this.configuration = configuration;
+        this.type = type;
+        this.plan = PLANS.get(type);
+        if (prefix == null) {
+            ConfigPath path = type.getAnnotation(ConfigPath.class);
+            prefix = path == null ? "" : path.value();
+        }
+        this.prefix = prefix;
+        Slot[] slots = plan.slots;
+        keys = new String[slots.length];
+        shardOf = new int[slots.length];
+        ids = new KeyId[slots.length];
+        List<ConfigShard> distinct = new ArrayList<>();
+        for (int i = 0; i < slots.length; i++) {
+            keys[i] = prefix.isEmpty() ? slots[i].path : prefix + "." + slots[i].path;
+            ConfigShard shard = configuration.shardFor(keys[i]);
+            int index = distinct.indexOf(shard);
+            if (index < 0) {
+                index = distinct.size();
+                distinct.add(shard);
+            }
+            shardOf[i] = index;
+            ids[i] = shard.idFor(keys[i]);
+        }
+        shards = distinct.toArray(new ConfigShard[distinct.size()]);
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * Gets the prefix the paths of the fields are relative to.
+     *
+     * @return prefix, or an empty string if the paths are full keys
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Gets the keys of the bound fields.
+     *
+     * @return unmodifiable set of keys
+     */
+    public Set<String> getKeys() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(keys)));
+    }
+
+    /**
+     * Creates an object with its no-argument constructor and fills it from the current settings.
+     *
+     * @return new bound object
+     * @throws IllegalStateException if the type cannot be instantiated without arguments
+     */
+    public T create() {
+        if (plan.constructor == null) {
+            throw new IllegalStateException(type.getName() + " has no no-argument constructor");
+        }
+        Object instance;
+        try {
+            instance = (Object) plan.constructor.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("could not create " + type.getName(), t);
+        }
+        return update(type.cast(instance));
+    }
+
+    /**
+     * Fills the fields of an object from the current settings in one pass. Settings of one namespace are all read
+     * from the same generation, so the object never mixes values from before and after a reload of that namespace.
+     *
+     * @param instance object to fill
+     * @return the object
+     */
+    public T update(T instance) {
+        if (instance == null) {
+            throw new IllegalArgumentException("instance cannot be null");
+        }
+        ConfigSnapshot[] snapshots = new ConfigSnapshot[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            // mounted stores never change, so their settings are read through the shard
+            snapshots[i] = shards[i].store() == null ? shards[i].snapshot() : null;
+        }
+        Slot[] slots = plan.slots;
+        ConfigMetrics m = configuration.getMetrics();
+        try {
+            for (int i = 0; i < slots.length; i++) {
+                ConfigShard shard = shards[shardOf[i]];
+                KeyId id = ids[i];
+                if (!shard.isCurrent(id)) {
+                    // the key table was compacted; ids read from an older snapshot fall back to a lookup by key
+                    id = shard.idFor(keys[i]);
+                    ids[i] = id;
+                }
+                ConfigSnapshot settings = snapshots[shardOf[i]];
+                ConfigValue val = settings == null ? shard.valueAt(id) : settings.valueAt(id);
+                boolean readable = val != null && slots[i].apply(instance, val);
+                if (m != null) {
+                    m.read(keys[i], val != null, readable);
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("could not bind " + type.getName(), t);
+        }
+        return instance;
+    }
+
+    /**
+     * Fills an object now and again, on the thread that made the change, every time a setting under the prefix
+     * changes.
+     *
+     * @param instance object to keep up to date
+     * @return subscription that stops the updates when cancelled
+     */
+    public ConfigSubscription track(T instance) {
+        update(instance);
+        return configuration.subscribePrefix(listenedPrefix(), changes -> update(instance));
+    }
+
+    /**
+     * Fills an object now and again on the executor every time a setting under the prefix changes, merging changes
+     * that pile up before the executor runs into one update. Passing an executor that runs on the thread reading the
+     * fields, such as the main server thread, keeps the reads and the updates from racing.
+     *
+     * @param instance object to keep up to date
+     * @param executor executor to update the object on
+     * @return subscription that stops the updates when cancelled
+     */
+    public ConfigSubscription track(T instance, Executor executor) {
+        update(instance);
+        return configuration.subscribePrefix(listenedPrefix(), changes -> update(instance), executor, true);
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigBinding[" + type.getName() + ", " + prefix + "]";
+    }
+
+    private String listenedPrefix() {
+        return prefix.isEmpty() ? "" : prefix + ".";
+    }
+
+    private static Plan plan(Class<?> type) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        List<Slot> slots = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                ConfigPath path = field.getAnnotation(ConfigPath.class);
+                if (path == null) {
+                    continue;
+                }
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers())) {
+                    throw new IllegalArgumentException(field + " cannot be static or final");
+                }
+                field.setAccessible(true);
+                try {
+                    slots.add(slot(path.value(), field.getType(), lookup.unreflectSetter(field)));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalArgumentException("cannot access " + field, e);
+                }
+            }
+        }
+        MethodHandle constructor = null;
+        if (!Modifier.isAbstract(type.getModifiers())) {
+            try {
+                Constructor<?> noArgs = type.getDeclaredConstructor();
+                noArgs.setAccessible(true);
+                constructor = lookup.unreflectConstructor(noArgs).asType(MethodType.methodType(Object.class));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                // do nothing, objects can still be updated
+            }
+        }
+        return new Plan(constructor, slots.toArray(new Slot[slots.size()]));
+    }
+
+    private static Slot slot(String path, Class<?> fieldType, MethodHandle setter) {
+        if (fieldType == boolean.class) {
+            return new BooleanSlot(path, setter);
+        } else if (fieldType == int.class) {
+            return new IntSlot(path, setter);
+        } else if (fieldType == long.class) {
+            return new LongSlot(path, setter);
+        } else if (fieldType == double.class) {
+            return new DoubleSlot(path, setter);
+        } else if (fieldType == float.class) {
+            return new FloatSlot(path, setter);
+        }
+        Function<ConfigValue, Object> reader;
+        if (fieldType == Boolean.class) {
+            reader = val -> val.isBoolean() ? val.asBoolean(false) : null;
+        } else if (fieldType == Integer.class) {
+            reader = val -> val.isInt() ? val.asInt(0) : null;
+        } else if (fieldType == Long.class) {
+            reader = val -> val.isLong() ? val.asLong(0) : null;
+        } else if (fieldType == Double.class) {
+            reader = val -> val.isDouble() ? val.asDouble(0) : null;
+        } else if (fieldType == Float.class) {
+            reader = val -> val.isDouble() ? (float) val.asDouble(0) : null;
+        } else if (fieldType == String.class) {
+            reader = val -> ConfigValue.isScalar(val.raw()) ? val.asString() : null;
+        } else if (fieldType == List.class) {
+            reader = val -> val.convert(ConfigConverters.STRING_LIST);
+        } else if (fieldType == Set.class) {
+            reader = val -> val.convert(ConfigConverters.STRING_SET);
+        } else if (fieldType == NumberRange.class) {
+            reader = val -> val.convert(ConfigConverters.NUMBER_RANGE);
+        } else if (fieldType == int[].class) {
+            reader = val -> {
+                int[] array = val.convert(INT_ARRAY);
+                return array == null ? null : array.clone();
+            };
+        } else if (fieldType == long[].class) {
+            reader = val -> {
+                long[] array = val.convert(LONG_ARRAY);
+                return array == null ? null : array.clone();
+            };
+        } else if (fieldType == double[].class) {
+            reader = val -> {
+                double[] array = val.convert(DOUBLE_ARRAY);
+                return array == null ? null : array.clone();
+            };
+        } else if (fieldType.isEnum()) {
+            ConfigConverter<?> converter = enumConverter(fieldType);
+            reader = val -> val.convert(converter);
+        } else if (fieldType == Object.class) {
+            reader = ConfigValue::raw;
+        } else {
+            throw new IllegalArgumentException("cannot bind " + path + " to a field of type " + fieldType.getName());
+        }
+        return new ValueSlot(path, setter, reader);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ConfigConverter<?> enumConverter(Class<?> type) {
+        return ConfigConverters.forEnum((Class) type);
+    }
+
+    private static final class Plan {
+
+        private final MethodHandle constructor;
+        private final Slot[] slots;
+
+        private Plan(MethodHandle constructor, Slot[] slots) {
+            this.constructor = constructor;
+            this.slots = slots;
+        }
+
+    }
+
+    /**
+     * A field of a bound class and the handle that writes it, adapted to take the object as {@code Object} and the
+     * value as the primitive type of the field, so writes are exact invocations.
+     */
+    private abstract static class Slot {
+
+        final String path;
+        final MethodHandle setter;
+
+        Slot(String path, MethodHandle setter, Class<?> valueType) {
+            this.path = path;
+            this.setter = setter.asType(MethodType.methodType(void.class, Object.class, valueType));
+        }
+
+        /**
+         * Writes the value into the field if it can be read as the type of the field.
+         *
+         * @return if the field was written
+         */
+        abstract boolean apply(Object target, ConfigValue val) throws Throwable;
+
+    }
+
+    private static final class BooleanSlot extends Slot {
+
+        BooleanSlot(String path, MethodHandle setter) {
+            super(path, setter, boolean.class);
+        }
+
+        @Override
+        boolean apply(Object target, ConfigValue val) throws Throwable {
+            if (!val.isBoolean()) {
+                return false;
+            }
+            setter.invokeExact(target, val.asBoolean(false));
+            return true;
+        }
+
+    }
+
+    private static final class IntSlot extends Slot {
+
+        IntSlot(String path, MethodHandle setter) {
+            super(path, setter, int.class);
+        }
+
+        @Override
+        boolean apply(Object target, ConfigValue val) throws Throwable {
+            if (!val.isInt()) {
+                return false;
+            }
+            setter.invokeExact(target, val.asInt(0));
+            return true;
+        }
+
+    }
+
+    private static final class LongSlot extends Slot {
+
+        LongSlot(String path, MethodHandle setter) {
+            super(path, setter, long.class);
+        }
+
+        @Override
+        boolean apply(Object target, ConfigValue val) throws Throwable {
+            if (!val.isLong()) {
+                return false;
+            }
+            setter.invokeExact(target, val.asLong(0));
+            return true;
+        }
+
+    }
+
+    private static final class DoubleSlot extends Slot {
+
+        DoubleSlot(String path, MethodHandle setter) {
+            super(path, setter, double.class);
+        }
+
+        @Override
+        boolean apply(Object target, ConfigValue val) throws Throwable {
+            if (!val.isDouble()) {
+                return false;
+            }
+            setter.invokeExact(target, val.asDouble(0));
+            return true;
+        }
+
+    }
+
+    private static final class FloatSlot extends Slot {
+
+        FloatSlot(String path, MethodHandle setter) {
+            super(path, setter, float.class);
+        }
+
+        @Override
+        boolean apply(Object target, ConfigValue val) throws Throwable {
+            if (!val.isDouble()) {
+                return false;
+            }
+            setter.invokeExact(target, (float) val.asDouble(0));
+            return true;
+        }
+
+    }
+
+    private static final class ValueSlot extends Slot {
+
+        private final Function<ConfigValue, Object> reader;
+
+        ValueSlot(String path, MethodHandle setter, Function<ConfigValue, Object> reader) {
+            super(path, setter, Object.class);
+            this.reader = reader;
+        }
+
+        @Override
+        boolean apply(Object target, ConfigValue val) throws Throwable {
+            Object value = reader.apply(val);
+            if (value == null) {
+                return false;
+            }
+            setter.invokeExact(target, value);
+            return true;
+        }
+
+    }
+
+}
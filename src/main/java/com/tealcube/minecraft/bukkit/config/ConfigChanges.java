@@ -0,0 +1,160 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The set of changes one update made to a {@link MasterConfiguration}, keyed by setting.
+ */
+public final class ConfigChanges implements Iterable<ConfigChange> {
+
+    private final long generation;
+    private final Map<String, ConfigChange> changes;
+
+    ConfigChanges(long generation, Map<String, ConfigChange> changes) {
+        this.generation = generation;
+        this.changes = Collections.unmodifiableMap(changes);
+    }
+
+    static ConfigChanges none(long generation) {
+        return new ConfigChanges(generation, Collections.<String, ConfigChange>emptyMap());
+    }
+
+    /**
+     * Gets the generation of the settings the changes produced.
+     *
+     * @return generation after the changes
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    public int size() {
+        return changes.size();
+    }
+
+    public boolean contains(String key) {
+        return changes.containsKey(key);
+    }
+
+    /**
+     * Gets the change made to a key.
+     *
+     * @param key key to check
+     * @return change made to the key, or null if it did not change
+     */
+    public ConfigChange get(String key) {
+        return changes.get(key);
+    }
+
+    /**
+     * Gets every key that was added, changed or removed.
+     *
+     * @return changed keys
+     */
+    public Set<String> getKeys() {
+        return changes.keySet();
+    }
+
+    public Collection<ConfigChange> getChanges() {
+        return changes.values();
+    }
+
+    public Set<String> getAdded() {
+        return keysOf(ConfigChange.Type.ADDED);
+    }
+
+    public Set<String> getChanged() {
+        return keysOf(ConfigChange.Type.CHANGED);
+    }
+
+    public Set<String> getRemoved() {
+        return keysOf(ConfigChange.Type.REMOVED);
+    }
+
+    /**
+     * Folds changes made after these into one set, as if both had been applied by a single update. A key that was
+     * added and then removed, or changed back to its old value, drops out.
+     *
+     * @param later changes made after these
+     * @return merged changes
+     */
+    ConfigChanges merge(ConfigChanges later) {
+        Map<String, ConfigChange> merged = new LinkedHashMap<>(changes);
+        for (ConfigChange change : later) {
+            ConfigChange earlier = merged.remove(change.getKey());
+            if (earlier == null) {
+                merged.put(change.getKey(), change);
+                continue;
+            }
+            Object oldValue = earlier.getOldValue();
+            Object newValue = change.getNewValue();
+            if (oldValue == null && newValue == null) {
+                continue;
+            }
+            if (oldValue == null) {
+                merged.put(change.getKey(), new ConfigChange(change.getKey(), ConfigChange.Type.ADDED, null, newValue));
+            } else if (newValue == null) {
+                merged.put(change.getKey(), new ConfigChange(change.getKey(), ConfigChange.Type.REMOVED, oldValue,
+                        null));
+            } else if (!Objects.equals(oldValue, newValue)) {
+                merged.put(change.getKey(), new ConfigChange(change.getKey(), ConfigChange.Type.CHANGED, oldValue,
+                        newValue));
+            }
+        }
+        return new ConfigChanges(Math.max(generation, later.generation), merged);
+    }
+
+    @Override
+    public Iterator<ConfigChange> iterator() {
+        return changes.values().iterator();
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigChanges[generation=" + generation + ", " + changes.values() + "]";
+    }
+
+    private Set<String> keysOf(ConfigChange.Type type) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (ConfigChange change : changes.values()) {
+            if (change.getType() == type) {
+                keys.add(change.getKey());
+            }
+        }
+        return Collections.unmodifiableSet(keys);
+    }
+
+}
@@ -0,0 +1,46 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+/**
+ * Converts the raw value of a setting into another type. Results are cached with the value, so a converter runs
+ * once per key and value and every later read returns the same result until the key changes or is reloaded. Results
+ * should therefore be immutable.
+ * <p>
+ * The cache is keyed by the converter instance, so converters should be kept in constants rather than created for
+ * each read.
+ *
+ * @param <T> type converted to
+ */
+@FunctionalInterface
+public interface ConfigConverter<T> {
+
+    /**
+     * Converts a raw value.
+     *
+     * @param value raw value of the setting, never null
+     * @return converted value, or null if the value cannot be converted
+     */
+    T convert(Object value);
+
+}
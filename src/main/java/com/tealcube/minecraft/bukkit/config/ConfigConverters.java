@@ -0,0 +1,147 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Converters used by the getters of {@link MasterConfiguration}, available for use with
+ * {@link MasterConfiguration#get(String, ConfigConverter, Object)} and handles as well.
+ */
+public final class ConfigConverters {
+
+    /**
+     * Converts a list into an unmodifiable list of the string form of each element.
+     */
+    public static final ConfigConverter<List<String>> STRING_LIST = value -> {
+        if (!(value instanceof List)) {
+            return null;
+        }
+        List<String> strings = new ArrayList<>(((List<?>) value).size());
+        for (Object o : (List<?>) value) {
+            strings.add(String.valueOf(o));
+        }
+        return Collections.unmodifiableList(strings);
+    };
+
+    /**
+     * Converts a list into an unmodifiable hash set of the string form of each element, for settings that are
+     * mostly checked with {@link Set#contains(Object)}.
+     */
+    public static final ConfigConverter<Set<String>> STRING_SET = value -> {
+        if (!(value instanceof List)) {
+            return null;
+        }
+        Set<String> strings = new HashSet<>();
+        for (Object o : (List<?>) value) {
+            strings.add(String.valueOf(o));
+        }
+        return Collections.unmodifiableSet(strings);
+    };
+
+    /**
+     * Converts a number, a string such as {@code 5-10} or {@code -2..2}, or a list of two numbers into a range.
+     */
+    public static final ConfigConverter<NumberRange> NUMBER_RANGE = ConfigConverters::toRange;
+
+    private static final ClassValue<ConfigConverter<?>> ENUMS = new ClassValue<ConfigConverter<?>>() {
+        @Override
+        protected ConfigConverter<?> computeValue(Class<?> type) {
+            return enumConverter(type.asSubclass(Enum.class));
+        }
+    };
+
+    private ConfigConverters() {
+        // do nothing
+    }
+
+    /**
+     * Gets the converter for an enum. Names are matched ignoring case, with spaces and dashes read as underscores.
+     * The same converter instance is returned for every call with the same type.
+     *
+     * @param type enum type
+     * @param <E>  enum type
+     * @return converter for the enum
+     */
+    @SuppressWarnings("unchecked")
+    public static <E extends Enum<E>> ConfigConverter<E> forEnum(Class<E> type) {
+        return (ConfigConverter<E>) ENUMS.get(type);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <E extends Enum<E>> ConfigConverter<E> enumConverter(Class type) {
+        return value -> {
+            String name = String.valueOf(value).trim().toUpperCase(Locale.ROOT).replace(' ', '_').replace('-', '_');
+            try {
+                return (E) Enum.valueOf(type, name);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        };
+    }
+
+    private static NumberRange toRange(Object value) {
+        if (value instanceof Number) {
+            double number = ((Number) value).doubleValue();
+            return new NumberRange(number, number);
+        }
+        if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            if (list.size() != 2) {
+                return null;
+            }
+            Double min = toDouble(String.valueOf(list.get(0)));
+            Double max = toDouble(String.valueOf(list.get(1)));
+            return min == null || max == null ? null : new NumberRange(min, max);
+        }
+        String string = String.valueOf(value).trim();
+        int split = string.indexOf("..");
+        int length = 2;
+        if (split < 0) {
+            // the first character may be the sign of the lower bound
+            split = string.indexOf('-', 1);
+            length = 1;
+        }
+        if (split < 0) {
+            Double number = toDouble(string);
+            return number == null ? null : new NumberRange(number, number);
+        }
+        Double min = toDouble(string.substring(0, split));
+        Double max = toDouble(string.substring(split + length));
+        return min == null || max == null ? null : new NumberRange(min, max);
+    }
+
+    private static Double toDouble(String string) {
+        try {
+            return Double.parseDouble(string.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds the executor the async operations of this library run on when none is passed in. By default that is a new
+ * virtual thread per task when the JDK has them, and otherwise a cached pool of daemon threads, so blocking file I/O
+ * never runs on the caller's thread or on the common fork join pool.
+ */
+public final class ConfigExecutors {
+
+    private static volatile Executor defaultExecutor;
+
+    private ConfigExecutors() {
+        // do nothing
+    }
+
+    /**
+     * Gets the executor used by async operations when none is passed in.
+     *
+     * @return default executor
+     */
+    public static Executor getDefault() {
+        Executor executor = defaultExecutor;
+        return executor != null ? executor : Fallback.INSTANCE;
+    }
+
+    /**
+     * Sets the executor used by async operations when none is passed in, such as a plugin's own async scheduler.
+     * Passing null restores the built-in executor.
+     *
+     * @param executor executor to use
+     */
+    public static void setDefault(Executor executor) {
+        defaultExecutor = executor;
+    }
+
+    /**
+     * Returns true if the JDK supports virtual threads, in which case the built-in executor uses them.
+     *
+     * @return if virtual threads are available
+     */
+    public static boolean isVirtualThreadsAvailable() {
+        return Fallback.VIRTUAL;
+    }
+
+    private static final class Fallback {
+
+        private static final boolean VIRTUAL;
+        private static final ExecutorService INSTANCE;
+
+        static {
+            ExecutorService executor = null;
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                executor = (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // do nothing, virtual threads are not available
+            }
+            VIRTUAL = executor != null;
+            if (executor == null) {
+                AtomicInteger count = new AtomicInteger();
+                executor = Executors.newCachedThreadPool(r -> {
+                    Thread thread = new Thread(r, "Config-io-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            INSTANCE = executor;
+        }
+
+    }
+
+}
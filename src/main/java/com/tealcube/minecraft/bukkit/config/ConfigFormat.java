@@ -0,0 +1,195 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+
+/**
+ * The file formats a {@link SmartConfiguration} can be kept in. Every format loads into the same sections and is
+ * flattened into a {@link MasterConfiguration} under the file name without its extension, so readers do not depend
+ * on the format a file is written in.
+ */
+public enum ConfigFormat {
+
+    YAML("yml", "yaml"),
+    JSON("json"),
+    PROPERTIES("properties");
+
+    private static final int SNIFF_LENGTH = 4096;
+
+    private final String[] extensions;
+
+    ConfigFormat(String... extensions) {
+        this.extensions = extensions;
+    }
+
+    /**
+     * Gets the file extensions of this format, without their dots. The first one is used for new files.
+     *
+     * @return extensions of this format
+     */
+    public String[] getExtensions() {
+        return extensions.clone();
+    }
+
+    /**
+     * Creates a configuration of this format for the file and loads it.
+     *
+     * @param file file to load/save from/to
+     * @return loaded configuration
+     */
+    public SmartConfiguration load(File file) {
+        switch (this) {
+            case JSON:
+                return new SmartJsonConfiguration(file);
+            case PROPERTIES:
+                return new SmartPropertiesConfiguration(file);
+            default:
+                return new SmartYamlConfiguration(file);
+        }
+    }
+
+    /**
+     * Creates a configuration of this format for the file without loading it.
+     *
+     * @see SmartYamlConfiguration#deferred(File)
+     */
+    SmartYamlConfiguration deferred(File file) {
+        switch (this) {
+            case JSON:
+                return SmartYamlConfiguration.defer(new SmartJsonConfiguration(), file);
+            case PROPERTIES:
+                return SmartYamlConfiguration.defer(new SmartPropertiesConfiguration(), file);
+            default:
+                return SmartYamlConfiguration.deferred(file);
+        }
+    }
+
+    /**
+     * Finds the format of a file and loads it.
+     *
+     * @param file file to load/save from/to
+     * @return loaded configuration
+     * @see #forFile(File)
+     */
+    public static SmartConfiguration open(File file) {
+        return forFile(file).load(file);
+    }
+
+    /**
+     * Finds the format of a file from its extension. Files with any other extension are told apart by their first
+     * few kilobytes: an opening brace means JSON, a first entry with {@code =} before any {@code :} means properties,
+     * and anything else, including files that cannot be read, is YAML.
+     *
+     * @param file file to find the format of
+     * @return format of the file
+     */
+    public static ConfigFormat forFile(File file) {
+        ConfigFormat format = forFileName(file.getName());
+        if (format != null) {
+            return format;
+        }
+        byte[] start = new byte[SNIFF_LENGTH];
+        int length = 0;
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read;
+            while (length < start.length && (read = in.read(start, length, start.length - length)) > 0) {
+                length += read;
+            }
+        } catch (IOException e) {
+            return YAML;
+        }
+        return sniff(new String(start, 0, length, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Finds the format of a file name from its extension.
+     *
+     * @param fileName name of the file
+     * @return format of the file, or null if the extension is not one of a known format
+     */
+    public static ConfigFormat forFileName(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        String extension = fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+        for (ConfigFormat format : values()) {
+            for (String known : format.extensions) {
+                if (known.equals(extension)) {
+                    return format;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tells the format of a document from its start.
+     *
+     * @param contents start of the document
+     * @return format of the document
+     */
+    static ConfigFormat sniff(String contents) {
+        int position = 0;
+        while (position < contents.length()) {
+            int end = contents.indexOf('\n', position);
+            if (end < 0) {
+                end = contents.length();
+            }
+            String line = contents.substring(position, end).trim();
+            position = end + 1;
+            if (line.startsWith("\uFEFF")) {
+                line = line.substring(1).trim();
+            }
+            if (line.isEmpty() || line.startsWith("#") || line.startsWith("!")) {
+                continue;
+            }
+            if (line.startsWith("{")) {
+                return JSON;
+            }
+            int equals = line.indexOf('=');
+            int colon = line.indexOf(':');
+            return equals >= 0 && (colon < 0 || equals < colon) ? PROPERTIES : YAML;
+        }
+        return YAML;
+    }
+
+    /**
+     * Gets the name a file's settings are kept under in a {@link MasterConfiguration}, which is the file name
+     * without its extension.
+     *
+     * @param fileName name of the file
+     * @return name without the extension
+     */
+    static String stripExtension(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(0, dot) : fileName;
+    }
+
+}
@@ -0,0 +1,113 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import java.util.function.Predicate;
+
+/**
+ * A key of a {@link MasterConfiguration} that has been resolved once up front. Reading through a handle is an array
+ * read rather than a hash lookup, and the handle keeps working when the configuration is loaded again.
+ *
+ * @param <T> type of the value
+ */
+public abstract class ConfigKey<T> {
+
+    private final MasterConfiguration configuration;
+    private final String key;
+    private final ConfigShard shard;
+    private KeyId id;
+
+    ConfigKey(MasterConfiguration configuration, String key) {
+        if (configuration == null || key == null) {
+            throw new IllegalArgumentException("configuration and key cannot be null");
+        }
+        MasterConfiguration.checkKey(key);
+        this.configuration = configuration;
+        this.key = key;
+        this.shard = configuration.shardFor(key);
+        this.id = shard.idFor(key);
+    }
+
+    /**
+     * Gets the key this handle reads.
+     *
+     * @return key of the setting
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Returns true if the key currently has a value.
+     *
+     * @return if the key is set
+     */
+    public boolean isSet() {
+        return value() != null;
+    }
+
+    /**
+     * Gets the current value, or the fallback if the key is not set.
+     *
+     * @return current value
+     */
+    public abstract T getValue();
+
+    final ConfigValue value() {
+        return shard.valueAt(currentId());
+    }
+
+    /**
+     * Gets the value and counts the read when the configuration has metrics.
+     *
+     * @param readable check for whether the value can be read as the type of this handle
+     * @return current value, or null if the key is not set
+     */
+    final ConfigValue read(Predicate<ConfigValue> readable) {
+        ConfigValue val = shard.valueAt(currentId());
+        ConfigMetrics m = configuration.getMetrics();
+        if (m != null) {
+            m.read(key, val != null, val != null && readable.test(val));
+        }
+        return val;
+    }
+
+    /**
+     * Gets the id of the key, resolving it again if the key table has been compacted since it was last resolved.
+     * Racing threads may both resolve it, which only costs a lookup.
+     */
+    private KeyId currentId() {
+        KeyId current = id;
+        if (!shard.isCurrent(current)) {
+            current = shard.idFor(key);
+            id = current;
+        }
+        return current;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + key + "]";
+    }
+
+}
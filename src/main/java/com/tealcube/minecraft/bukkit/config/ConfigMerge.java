@@ -0,0 +1,163 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Computes what it takes to bring a configuration in line with its defaults, walking both trees once, section by
+ * section. The result is a list of edits against the local sections, so applying it touches only what differs and
+ * never resolves a path from the root.
+ */
+final class ConfigMerge {
+
+    private final ConfigurationSection root;
+    private final boolean replace;
+    private final char separator;
+    private final List<Edit> edits = new ArrayList<>();
+    private final List<String> added = new ArrayList<>();
+    private final List<String> changed = new ArrayList<>();
+    private final List<String> removed = new ArrayList<>();
+
+    private ConfigMerge(ConfigurationSection root, boolean replace, char separator) {
+        this.root = root;
+        this.replace = replace;
+        this.separator = separator;
+    }
+
+    /**
+     * Compares a local configuration with its defaults. Without {@code replace}, only settings missing from the local
+     * configuration are added; with it, the local configuration is made equal to the defaults. Top level keys in
+     * {@code skip} are left out of the comparison.
+     *
+     * @param defaults defaults to compare against
+     * @param local    local configuration to update
+     * @param replace  if local settings that differ from the defaults are replaced and extra ones removed
+     * @param skip     top level key to leave alone, or null
+     * @return computed merge, not yet applied
+     */
+    static ConfigMerge compute(ConfigurationSection defaults, ConfigurationSection local, boolean replace,
+                               String skip) {
+        ConfigMerge merge = new ConfigMerge(local, replace, local.getRoot().options().pathSeparator());
+        merge.walk(defaults, local, "", skip);
+        return merge;
+    }
+
+    boolean isEmpty() {
+        return edits.isEmpty();
+    }
+
+    /**
+     * Applies the edits to the local configuration the merge was computed for.
+     */
+    void apply() {
+        for (Edit edit : edits) {
+            edit.section.set(edit.path, edit.value);
+        }
+    }
+
+    List<String> getAdded() {
+        return added;
+    }
+
+    List<String> getChanged() {
+        return changed;
+    }
+
+    List<String> getRemoved() {
+        return removed;
+    }
+
+    private void walk(ConfigurationSection defaults, ConfigurationSection local, String prefix, String skip) {
+        Map<String, Object> localValues = local.getValues(false);
+        for (Map.Entry<String, Object> entry : defaults.getValues(false).entrySet()) {
+            String key = entry.getKey();
+            if (key.equals(skip)) {
+                continue;
+            }
+            Object value = entry.getValue();
+            Object current = localValues.get(key);
+            String path = prefix + key;
+            if (value instanceof ConfigurationSection) {
+                if (current instanceof ConfigurationSection) {
+                    walk((ConfigurationSection) value, (ConfigurationSection) current, path + separator, null);
+                } else {
+                    if (current != null) {
+                        removed.add(path);
+                    }
+                    addAll((ConfigurationSection) value, local, key + separator, path + separator);
+                }
+            } else if (current == null) {
+                add(local, key, value, path, added);
+            } else if (replace && (current instanceof ConfigurationSection || !Objects.equals(current, value))) {
+                add(local, key, value, path, changed);
+            }
+        }
+        if (!replace) {
+            return;
+        }
+        Map<String, Object> defaultValues = defaults.getValues(false);
+        for (String key : localValues.keySet()) {
+            if (!key.equals(skip) && !defaultValues.containsKey(key)) {
+                add(local, key, null, prefix + key, removed);
+            }
+        }
+    }
+
+    private void addAll(ConfigurationSection defaults, ConfigurationSection local, String relative, String prefix) {
+        for (Map.Entry<String, Object> entry : defaults.getValues(false).entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof ConfigurationSection) {
+                addAll((ConfigurationSection) value, local, relative + entry.getKey() + separator,
+                        prefix + entry.getKey() + separator);
+            } else if (value != null) {
+                add(local, relative + entry.getKey(), value, prefix + entry.getKey(), added);
+            }
+        }
+    }
+
+    private void add(ConfigurationSection section, String path, Object value, String fullPath, List<String> report) {
+        edits.add(new Edit(section, path, value));
+        report.add(fullPath);
+    }
+
+    private static final class Edit {
+
+        private final ConfigurationSection section;
+        private final String path;
+        private final Object value;
+
+        private Edit(ConfigurationSection section, String path, Object value) {
+            this.section = section;
+            this.path = path;
+            this.value = value;
+        }
+
+    }
+
+}
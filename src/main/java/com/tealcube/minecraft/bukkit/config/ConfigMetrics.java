@@ -0,0 +1,506 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how settings are read and times how files are parsed, flattened and saved. Nothing is recorded until an
+ * instance is handed to {@link MasterConfiguration#setMetrics(ConfigMetrics)} or
+ * {@link SmartYamlConfiguration#setMetrics(ConfigMetrics)}; until then the only cost is a null check. One instance
+ * can be shared between a master configuration and its files.
+ * <p>
+ * Counters are {@link LongAdder}s, so readers on many threads do not contend on them. Reads are counted per key, or
+ * per prefix of the first few path segments when built with {@link #ConfigMetrics(int)}, which keeps the number of
+ * counters down on large configurations. At most {@link #DEFAULT_MAX_KEYS} keys or prefixes get counters of their own,
+ * so reading keys made up on the fly, such as one per player, cannot grow the metrics without end; reads of keys
+ * beyond that are counted together under {@link #OTHER}.
+ */
+public final class ConfigMetrics implements ConfigMetricsMXBean {
+
+    /**
+     * Operations on a whole file that are timed.
+     */
+    public enum Operation {
+        PARSE,
+        FLATTEN,
+        SAVE
+    }
+
+    /**
+     * Default number of keys or prefixes that get counters of their own.
+     */
+    public static final int DEFAULT_MAX_KEYS = 10000;
+    /**
+     * Name the reads of keys beyond the limit are counted under.
+     */
+    public static final String OTHER = "(other)";
+
+    private final int depth;
+    private final int maxKeys;
+    private final Counters other = new Counters(OTHER);
+    private final ConcurrentHashMap<String, Counters> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counters> prefixes = new ConcurrentHashMap<>();
+    private final Map<Operation, ConcurrentHashMap<String, Timer>> timers = new EnumMap<>(Operation.class);
+
+    /**
+     * Instantiates metrics that count reads per key.
+     */
+    public ConfigMetrics() {
+        this(0);
+    }
+
+    /**
+     * Instantiates metrics that count reads per prefix. A depth of 2 counts {@code loot.tier-1.weight} and
+     * {@code loot.tier-1.name} together under {@code loot.tier-1}; a depth of 0 counts every key on its own.
+     *
+     * @param depth number of path segments to count by
+     */
+    public ConfigMetrics(int depth) {
+        this(depth, DEFAULT_MAX_KEYS);
+    }
+
+    /**
+     * Instantiates metrics that count reads per prefix, with counters of their own for at most {@code maxKeys} keys
+     * or prefixes. The limit is kept loosely while several threads read new keys at once.
+     *
+     * @param depth   number of path segments to count by, or 0 to count every key on its own
+     * @param maxKeys number of keys or prefixes to count on their own
+     */
+    public ConfigMetrics(int depth, int maxKeys) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("depth cannot be negative");
+        }
+        if (maxKeys < 1) {
+            throw new IllegalArgumentException("maxKeys must be positive");
+        }
+        this.depth = depth;
+        this.maxKeys = maxKeys;
+        for (Operation operation : Operation.values()) {
+            timers.put(operation, new ConcurrentHashMap<String, Timer>());
+        }
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getMaxKeys() {
+        return maxKeys;
+    }
+
+    /**
+     * Counts a read of a key.
+     *
+     * @param key      key that was read
+     * @param set      if the key had a value
+     * @param readable if the value could be read as the requested type
+     */
+    void read(String key, boolean set, boolean readable) {
+        Counters c = counters.get(key);
+        if (c == null) {
+            c = countersFor(key);
+        }
+        c.reads.increment();
+        if (!set) {
+            c.fallbacks.increment();
+        } else if (!readable) {
+            c.mismatches.increment();
+        }
+    }
+
+    void time(Operation operation, String file, long nanos) {
+        Timer timer = timers.get(operation).computeIfAbsent(file, f -> new Timer());
+        timer.count.increment();
+        timer.total.add(nanos);
+        timer.max.accumulate(nanos);
+    }
+
+    private Counters countersFor(String key) {
+        if (depth == 0) {
+            return counted(counters, key);
+        }
+        Counters prefix = counted(prefixes, prefixOf(key, depth));
+        if (counters.size() < maxKeys) {
+            // remembers the prefix of the key so the next read skips working it out
+            counters.putIfAbsent(key, prefix);
+        }
+        return prefix;
+    }
+
+    private Counters counted(ConcurrentHashMap<String, Counters> map, String name) {
+        Counters c = map.get(name);
+        if (c != null) {
+            return c;
+        }
+        return map.size() < maxKeys ? map.computeIfAbsent(name, Counters::new) : other;
+    }
+
+    private static String prefixOf(String key, int depth) {
+        if (depth == 0) {
+            return key;
+        }
+        int end = -1;
+        for (int i = 0; i < depth; i++) {
+            end = key.indexOf('.', end + 1);
+            if (end < 0) {
+                return key;
+            }
+        }
+        return key.substring(0, end);
+    }
+
+    /**
+     * Takes a copy of every counter and timer.
+     *
+     * @return snapshot of the metrics
+     */
+    public Snapshot snapshot() {
+        Map<String, KeyStats> keys = new LinkedHashMap<>();
+        for (Counters c : (depth == 0 ? counters : prefixes).values()) {
+            keys.put(c.name, c.stats());
+        }
+        if (other.reads.sum() > 0) {
+            keys.put(OTHER, other.stats());
+        }
+        Map<Operation, Map<String, FileStats>> files = new EnumMap<>(Operation.class);
+        for (Map.Entry<Operation, ConcurrentHashMap<String, Timer>> entry : timers.entrySet()) {
+            Map<String, FileStats> stats = new LinkedHashMap<>();
+            for (Map.Entry<String, Timer> timer : entry.getValue().entrySet()) {
+                Timer t = timer.getValue();
+                stats.put(timer.getKey(), new FileStats(timer.getKey(), t.count.sum(), t.total.sum(), t.max.get()));
+            }
+            files.put(entry.getKey(), Collections.unmodifiableMap(stats));
+        }
+        return new Snapshot(depth, Collections.unmodifiableMap(keys), files);
+    }
+
+    /**
+     * Clears every counter and timer.
+     */
+    @Override
+    public void reset() {
+        counters.clear();
+        prefixes.clear();
+        other.reset();
+        for (ConcurrentHashMap<String, Timer> timer : timers.values()) {
+            timer.clear();
+        }
+    }
+
+    @Override
+    public long getReads() {
+        long sum = 0;
+        for (KeyStats stats : snapshot().getKeys().values()) {
+            sum += stats.getReads();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getFallbacks() {
+        long sum = 0;
+        for (KeyStats stats : snapshot().getKeys().values()) {
+            sum += stats.getFallbacks();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getMismatches() {
+        long sum = 0;
+        for (KeyStats stats : snapshot().getKeys().values()) {
+            sum += stats.getMismatches();
+        }
+        return sum;
+    }
+
+    @Override
+    public Map<String, Long> getHottest(int limit) {
+        Map<String, Long> hottest = new LinkedHashMap<>();
+        for (KeyStats stats : snapshot().getHottest(limit)) {
+            hottest.put(stats.getName(), stats.getReads());
+        }
+        return hottest;
+    }
+
+    @Override
+    public Map<String, Long> getFallbackCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (KeyStats stats : snapshot().getKeys().values()) {
+            if (stats.getFallbacks() > 0) {
+                counts.put(stats.getName(), stats.getFallbacks());
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getMismatchCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (KeyStats stats : snapshot().getKeys().values()) {
+            if (stats.getMismatches() > 0) {
+                counts.put(stats.getName(), stats.getMismatches());
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getAverageMicros(String operation) {
+        Map<String, Long> averages = new LinkedHashMap<>();
+        for (FileStats stats : snapshot().getFiles(Operation.valueOf(operation)).values()) {
+            averages.put(stats.getFile(), stats.getAverageNanos() / 1000);
+        }
+        return averages;
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server under
+     * {@code com.tealcube.minecraft.bukkit.config:type=ConfigMetrics,name=<name>}.
+     *
+     * @param name name to register under
+     * @return name the MBean was registered with
+     * @throws JMException if the MBean could not be registered
+     */
+    public ObjectName registerMBean(String name) throws JMException {
+        ObjectName objectName = objectName(name);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    public void unregisterMBean(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = objectName(name);
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+    }
+
+    private static ObjectName objectName(String name) throws JMException {
+        return new ObjectName("com.tealcube.minecraft.bukkit.config:type=ConfigMetrics,name=" +
+                ObjectName.quote(name));
+    }
+
+    private static final class Counters {
+
+        private final String name;
+        private final LongAdder reads = new LongAdder();
+        private final LongAdder fallbacks = new LongAdder();
+        private final LongAdder mismatches = new LongAdder();
+
+        private Counters(String name) {
+            this.name = name;
+        }
+
+        private KeyStats stats() {
+            return new KeyStats(name, reads.sum(), fallbacks.sum(), mismatches.sum());
+        }
+
+        private void reset() {
+            reads.reset();
+            fallbacks.reset();
+            mismatches.reset();
+        }
+
+    }
+
+    private static final class Timer {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    }
+
+    /**
+     * An immutable copy of the metrics at one point in time.
+     */
+    public static final class Snapshot {
+
+        private final int depth;
+        private final Map<String, KeyStats> keys;
+        private final Map<Operation, Map<String, FileStats>> files;
+
+        private Snapshot(int depth, Map<String, KeyStats> keys, Map<Operation, Map<String, FileStats>> files) {
+            this.depth = depth;
+            this.keys = keys;
+            this.files = files;
+        }
+
+        /**
+         * Gets the read counts by key, or by prefix when counting per prefix.
+         *
+         * @return counts by key or prefix
+         */
+        public Map<String, KeyStats> getKeys() {
+            return keys;
+        }
+
+        /**
+         * Gets the most read keys or prefixes.
+         *
+         * @param limit how many to return
+         * @return stats of the most read keys, most read first
+         */
+        public List<KeyStats> getHottest(int limit) {
+            List<KeyStats> sorted = new ArrayList<>(keys.values());
+            sorted.sort((a, b) -> Long.compare(b.getReads(), a.getReads()));
+            return sorted.subList(0, Math.min(limit, sorted.size()));
+        }
+
+        /**
+         * Gets the keys of a configuration that have not been read since the metrics were last reset. When counting
+         * per prefix, a key counts as read if anything under its prefix was read. Keys whose reads were counted under
+         * {@link ConfigMetrics#OTHER} are reported as unread.
+         *
+         * @param configuration configuration to check
+         * @return keys that have never been read
+         */
+        public Set<String> getUnread(MasterConfiguration configuration) {
+            Set<String> unread = new LinkedHashSet<>();
+            configuration.forEachKey(key -> {
+                if (!keys.containsKey(prefixOf(key, depth))) {
+                    unread.add(key);
+                }
+            });
+            return unread;
+        }
+
+        public Map<String, FileStats> getFiles(Operation operation) {
+            return files.get(operation);
+        }
+
+    }
+
+    /**
+     * Read counts of a key or prefix.
+     */
+    public static final class KeyStats {
+
+        private final String name;
+        private final long reads;
+        private final long fallbacks;
+        private final long mismatches;
+
+        private KeyStats(String name, long reads, long fallbacks, long mismatches) {
+            this.name = name;
+            this.reads = reads;
+            this.fallbacks = fallbacks;
+            this.mismatches = mismatches;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getReads() {
+            return reads;
+        }
+
+        /**
+         * Gets how often the key was not set and the caller's fallback was returned.
+         *
+         * @return number of fallback reads
+         */
+        public long getFallbacks() {
+            return fallbacks;
+        }
+
+        /**
+         * Gets how often the key was set but could not be read as the requested type, such as {@code getInt} on a
+         * list.
+         *
+         * @return number of mismatched reads
+         */
+        public long getMismatches() {
+            return mismatches;
+        }
+
+        @Override
+        public String toString() {
+            return name + "[reads=" + reads + ", fallbacks=" + fallbacks + ", mismatches=" + mismatches + "]";
+        }
+
+    }
+
+    /**
+     * Timings of an operation on one file.
+     */
+    public static final class FileStats {
+
+        private final String file;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        private FileStats(String file, long count, long totalNanos, long maxNanos) {
+            this.file = file;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public long getAverageNanos() {
+            return count == 0 ? 0 : totalNanos / count;
+        }
+
+        @Override
+        public String toString() {
+            return file + "[count=" + count + ", average=" + getAverageNanos() / 1000 + "us, max=" +
+                    maxNanos / 1000 + "us]";
+        }
+
+    }
+
+}
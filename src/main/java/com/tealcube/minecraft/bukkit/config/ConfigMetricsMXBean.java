@@ -0,0 +1,66 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link ConfigMetrics}, registered with
+ * {@link ConfigMetrics#registerMBean(String)}.
+ */
+public interface ConfigMetricsMXBean {
+
+    long getReads();
+
+    long getFallbacks();
+
+    long getMismatches();
+
+    /**
+     * Gets the read counts of the most read keys or prefixes.
+     *
+     * @param limit how many to return
+     * @return read counts by key or prefix, most read first
+     */
+    Map<String, Long> getHottest(int limit);
+
+    /**
+     * Gets the keys or prefixes that were read at least once and fell back to a default at least once.
+     *
+     * @return fallback counts by key or prefix
+     */
+    Map<String, Long> getFallbackCounts();
+
+    Map<String, Long> getMismatchCounts();
+
+    /**
+     * Gets the average time of an operation by file, in microseconds.
+     *
+     * @param operation name of a {@link ConfigMetrics.Operation}
+     * @return average time by file name
+     */
+    Map<String, Long> getAverageMicros(String operation);
+
+    void reset();
+
+}
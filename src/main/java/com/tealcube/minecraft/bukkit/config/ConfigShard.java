@@ -0,0 +1,525 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import java.util.AbstractMap;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * The settings of one namespace of a {@link MasterConfiguration}. Every shard publishes its own snapshots under its
+ * own lock, so loading one namespace neither waits for nor copies the settings of the others, and handles and cached
+ * conversions of other namespaces are left untouched.
+ * <p>
+ * A shard can instead be served by a mounted {@link MappedConfigStore}, in which case it is read-only and its
+ * settings are decoded from the store on every read. Ids keep coming from the key table of the snapshot either way,
+ * so handles stay valid while stores are mounted and unmounted.
+ * <p>
+ * Removed keys keep their slot until the key table is compacted, which happens on a commit once most of the slots
+ * are empty. Keys reserved for handles are kept through compaction, but handles still resolve their ids again
+ * afterwards, since compacting renumbers them.
+ */
+final class ConfigShard {
+
+    private static final int COMPACT_MIN_KEYS = 1024;
+
+    private final String namespace;
+    private final Map<SmartConfiguration, BitSet> sourceKeys = new LinkedHashMap<>();
+    private final BitSet reserved = new BitSet();
+    private volatile ConfigSnapshot snapshot = ConfigSnapshot.EMPTY;
+    private volatile Mount mount;
+
+    ConfigShard(String namespace) {
+        this.namespace = namespace;
+    }
+
+    String namespace() {
+        return namespace;
+    }
+
+    ConfigSnapshot snapshot() {
+        return snapshot;
+    }
+
+    ConfigValue lookup(String key) {
+        Mount current = mount;
+        if (current == null) {
+            return snapshot.lookup(key);
+        }
+        int index = current.store.indexOf(key);
+        return index < 0 ? null : current.store.valueAt(index);
+    }
+
+    ConfigValue valueAt(KeyId id) {
+        Mount current = mount;
+        if (current == null) {
+            return snapshot.valueAt(id);
+        }
+        int index = id.epoch() == current.epoch && id.id() < current.indexes.length ? current.indexes[id.id()] :
+                current.store.indexOf(id.key());
+        return index < 0 ? null : current.store.valueAt(index);
+    }
+
+    /**
+     * Returns true if the id comes from the current epoch of the key table, so reading it needs no lookup by key.
+     *
+     * @param id resolved key
+     * @return if the id is current
+     */
+    boolean isCurrent(KeyId id) {
+        return id.epoch() == snapshot.keys().epoch();
+    }
+
+    int size() {
+        Mount current = mount;
+        if (current == null) {
+            return snapshot.size();
+        }
+        int[] range = current.store.range(namespace);
+        return range == null ? 0 : range[0];
+    }
+
+    /**
+     * Gets the store this namespace is served from.
+     *
+     * @return mounted store, or null if the settings are held on the heap
+     */
+    MappedConfigStore store() {
+        Mount current = mount;
+        return current == null ? null : current.store;
+    }
+
+    /**
+     * Serves this namespace from the store, replacing any store mounted before.
+     *
+     * @param store store to mount
+     * @throws IllegalStateException if the namespace holds settings on the heap
+     */
+    synchronized void mount(MappedConfigStore store) {
+        if (mount == null && snapshot.size() > 0) {
+            throw new IllegalStateException("namespace " + namespace + " already has settings");
+        }
+        mount = new Mount(store, snapshot.keys());
+        snapshot = snapshot.next();
+    }
+
+    synchronized boolean unmount(MappedConfigStore store) {
+        if (mount == null || mount.store != store) {
+            return false;
+        }
+        mount = null;
+        snapshot = snapshot.next();
+        return true;
+    }
+
+    /**
+     * Gets the id of a key, reserving a slot for it if it has no slot yet. Reserved slots are kept when the key
+     * table is compacted.
+     *
+     * @param key key in this namespace
+     * @return id of the key
+     */
+    KeyId idFor(String key) {
+        KeyTable keys = snapshot.keys();
+        int id = keys.indexOf(key);
+        if (id >= 0) {
+            return new KeyId(key, id, keys.epoch());
+        }
+        synchronized (this) {
+            ConfigSnapshot next = snapshot.withKey(key);
+            if (mount != null) {
+                // published first, so a reader that finds the new id also finds its entry
+                mount = new Mount(mount.store, next.keys());
+            }
+            snapshot = next;
+            id = next.keys().indexOf(key);
+            reserved.set(id);
+            return new KeyId(key, id, next.keys().epoch());
+        }
+    }
+
+    void forEachKey(Consumer<? super String> action) {
+        Mount current = mount;
+        if (current != null) {
+            current.forEach("", (key, index) -> action.accept(key));
+            return;
+        }
+        ConfigSnapshot settings = snapshot;
+        for (int id = 0; id < settings.keys().size(); id++) {
+            if (settings.valueAt(id) != null) {
+                action.accept(settings.keys().keyAt(id));
+            }
+        }
+    }
+
+    /**
+     * Calls the action for every setting whose key starts with the prefix, ordered path by path. Only the part of
+     * the key table under the prefix is visited.
+     *
+     * @param prefix prefix of the keys
+     * @param action action to call with each key and raw value
+     */
+    void forEach(String prefix, BiConsumer<? super String, Object> action) {
+        Mount current = mount;
+        if (current != null) {
+            current.forEach(prefix, (key, index) -> action.accept(key, current.store.valueAt(index).raw()));
+            return;
+        }
+        ConfigSnapshot settings = snapshot;
+        KeyTable keys = settings.keys();
+        int dot = prefix.lastIndexOf('.');
+        int parent = keys.node(dot < 0 ? "" : prefix.substring(0, dot));
+        if (parent < 0) {
+            return;
+        }
+        String partial = prefix.substring(dot + 1);
+        keys.forEachChild(parent, child -> {
+            if (keys.segment(child).startsWith(partial)) {
+                keys.forEachKey(child, id -> {
+                    ConfigValue val = settings.valueAt(id);
+                    if (val != null) {
+                        action.accept(keys.keyAt(id), val.raw());
+                    }
+                    return true;
+                });
+            }
+        });
+    }
+
+    /**
+     * Adds the last segment of every path directly under the path that has settings, in order.
+     *
+     * @param path     path to list, or an empty string for the top level of this shard
+     * @param children collection to add the segments to
+     */
+    void children(String path, Collection<String> children) {
+        Mount current = mount;
+        if (current != null) {
+            current.children(path, children);
+            return;
+        }
+        ConfigSnapshot settings = snapshot;
+        KeyTable keys = settings.keys();
+        int node = keys.node(path);
+        if (node < 0) {
+            return;
+        }
+        keys.forEachChild(node, child -> {
+            // removed keys keep their place in the table, so look for a setting that is still there
+            if (!keys.forEachKey(child, id -> settings.valueAt(id) == null)) {
+                children.add(keys.segment(child));
+            }
+        });
+    }
+
+    /**
+     * Iterates over the settings as they are when the iterator is created.
+     *
+     * @return iterator of keys and raw values
+     */
+    Iterator<Map.Entry<String, Object>> iterator() {
+        return new Entries(snapshot, mount);
+    }
+
+    synchronized boolean hasSource(SmartConfiguration configuration) {
+        return sourceKeys.containsKey(configuration);
+    }
+
+    synchronized void addSources(Collection<SmartConfiguration> sources) {
+        sources.addAll(sourceKeys.keySet());
+    }
+
+    synchronized void addKeys(SmartConfiguration configuration, Collection<String> keys) {
+        BitSet owned = sourceKeys.get(configuration);
+        if (owned == null) {
+            return;
+        }
+        KeyTable table = snapshot.keys();
+        for (int id = owned.nextSetBit(0); id >= 0; id = owned.nextSetBit(id + 1)) {
+            keys.add(table.keyAt(id));
+        }
+    }
+
+    /**
+     * Commits settings loaded again from the configurations, removing the keys of this namespace they owned but no
+     * longer have.
+     */
+    synchronized ConfigChanges commitReloaded(Collection<SmartConfiguration> configurations,
+                                              Map<String, ConfigValue> loaded) {
+        KeyTable keys = snapshot.keys();
+        for (SmartConfiguration configuration : configurations) {
+            BitSet previous = sourceKeys.get(configuration);
+            if (previous == null) {
+                continue;
+            }
+            for (int id = previous.nextSetBit(0); id >= 0; id = previous.nextSetBit(id + 1)) {
+                String key = keys.keyAt(id);
+                if (!loaded.containsKey(key)) {
+                    loaded.put(key, null);
+                }
+            }
+        }
+        return commit(loaded, false);
+    }
+
+    /**
+     * Publishes the next generation of this namespace. Null values remove their keys, values equal to the current
+     * ones are skipped, and with {@code replace} every key of this namespace missing from the updates is removed as
+     * well.
+     */
+    synchronized ConfigChanges commit(Map<String, ConfigValue> updates, boolean replace) {
+        ConfigSnapshot current = snapshot;
+        Map<String, ConfigValue> effective = new LinkedHashMap<>();
+        Map<String, ConfigChange> changes = new LinkedHashMap<>();
+        for (Map.Entry<String, ConfigValue> entry : updates.entrySet()) {
+            diff(current, entry.getKey(), entry.getValue(), effective, changes);
+        }
+        if (replace) {
+            for (int id = 0; id < current.keys().size(); id++) {
+                String key = current.keys().keyAt(id);
+                if (current.valueAt(id) != null && !updates.containsKey(key)) {
+                    diff(current, key, null, effective, changes);
+                }
+            }
+        }
+        if (effective.isEmpty()) {
+            return ConfigChanges.none(current.generation());
+        }
+        ConfigSnapshot next = current.with(effective);
+        for (Map.Entry<String, ConfigValue> entry : effective.entrySet()) {
+            int id = next.keys().indexOf(entry.getKey());
+            ConfigValue old = current.lookup(entry.getKey());
+            if (old != null && old.source() != null) {
+                BitSet owned = sourceKeys.get(old.source());
+                owned.clear(id);
+                if (owned.isEmpty()) {
+                    sourceKeys.remove(old.source());
+                }
+            }
+            ConfigValue val = entry.getValue();
+            if (val != null && val.source() != null) {
+                sourceKeys.computeIfAbsent(val.source(), s -> new BitSet()).set(id);
+            }
+        }
+        snapshot = shouldCompact(next) ? compact(next) : next;
+        return new ConfigChanges(next.generation(), changes);
+    }
+
+    private boolean shouldCompact(ConfigSnapshot settings) {
+        int slots = settings.keys().size();
+        return slots >= COMPACT_MIN_KEYS && (slots - settings.size() - reserved.cardinality()) * 2 > slots;
+    }
+
+    /**
+     * Drops the slots of keys that are neither set nor reserved, and renumbers the ids kept by this shard.
+     */
+    private ConfigSnapshot compact(ConfigSnapshot settings) {
+        int slots = settings.keys().size();
+        BitSet keep = (BitSet) reserved.clone();
+        for (int id = 0; id < slots; id++) {
+            if (settings.valueAt(id) != null) {
+                keep.set(id);
+            }
+        }
+        int[] renumbered = new int[slots];
+        ConfigSnapshot compacted = settings.compact(keep, renumbered);
+        for (Map.Entry<SmartConfiguration, BitSet> entry : sourceKeys.entrySet()) {
+            entry.setValue(renumber(entry.getValue(), renumbered));
+        }
+        BitSet kept = renumber(reserved, renumbered);
+        reserved.clear();
+        reserved.or(kept);
+        return compacted;
+    }
+
+    private static BitSet renumber(BitSet ids, int[] renumbered) {
+        BitSet next = new BitSet();
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            if (renumbered[id] >= 0) {
+                next.set(renumbered[id]);
+            }
+        }
+        return next;
+    }
+
+    private static void diff(ConfigSnapshot current, String key, ConfigValue val, Map<String, ConfigValue> effective,
+                             Map<String, ConfigChange> changes) {
+        ConfigValue old = current.lookup(key);
+        if (val == null) {
+            if (old != null) {
+                effective.put(key, null);
+                changes.put(key, new ConfigChange(key, ConfigChange.Type.REMOVED, old.raw(), null));
+            }
+            return;
+        }
+        if (old == null) {
+            changes.put(key, new ConfigChange(key, ConfigChange.Type.ADDED, null, val.raw()));
+        } else if (!Objects.equals(old.raw(), val.raw())) {
+            changes.put(key, new ConfigChange(key, ConfigChange.Type.CHANGED, old.raw(), val.raw()));
+        } else if (old.source() == val.source()) {
+            return;
+        }
+        effective.put(key, val);
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigShard[" + namespace + ", " + size() + " settings]";
+    }
+
+    /**
+     * A mounted store and, for every id of the key table it was created for, the index of its entry in the store.
+     */
+    private final class Mount {
+
+        private final MappedConfigStore store;
+        private final int epoch;
+        private final int[] indexes;
+
+        private Mount(MappedConfigStore store, KeyTable keys) {
+            this.store = store;
+            epoch = keys.epoch();
+            indexes = new int[keys.size()];
+            for (int id = 0; id < indexes.length; id++) {
+                indexes[id] = store.indexOf(keys.keyAt(id));
+            }
+        }
+
+        int first() {
+            int[] range = store.range(namespace);
+            return range == null ? 0 : range[1];
+        }
+
+        int end() {
+            int[] range = store.range(namespace);
+            return range == null ? 0 : range[2];
+        }
+
+        /**
+         * Gets the key of an entry if it belongs to this namespace; the range of the root namespace spans others.
+         */
+        String keyAt(int index) {
+            String key = store.keyAt(index);
+            return namespace.isEmpty() && key.indexOf('.') >= 0 ? null : key;
+        }
+
+        void forEach(String prefix, ObjIntConsumer<String> action) {
+            int index = first();
+            int end = end();
+            if (!prefix.isEmpty()) {
+                int[] range = store.prefixRange(prefix);
+                index = Math.max(index, range[0]);
+                end = Math.min(end, range[1]);
+            }
+            while (index < end) {
+                String key = store.keyAt(index);
+                int dot = key.indexOf('.');
+                if (namespace.isEmpty() && dot >= 0) {
+                    index = Math.max(index + 1, store.skip(key.substring(0, dot + 1)));
+                    continue;
+                }
+                action.accept(key, index++);
+            }
+        }
+
+        void children(String path, Collection<String> children) {
+            String prefix = path.isEmpty() ? "" : path + ".";
+            int index = first();
+            int end = end();
+            if (!prefix.isEmpty()) {
+                int[] range = store.prefixRange(prefix);
+                index = Math.max(index, range[0]);
+                end = Math.min(end, range[1]);
+            }
+            while (index < end) {
+                String key = store.keyAt(index);
+                int dot = key.indexOf('.', prefix.length());
+                String segment = key.substring(prefix.length(), dot < 0 ? key.length() : dot);
+                if (!namespace.isEmpty() || key.indexOf('.') < 0) {
+                    children.add(segment);
+                }
+                index = Math.max(index + 1, store.skip(prefix + segment + "."));
+            }
+        }
+
+    }
+
+    private static final class Entries implements Iterator<Map.Entry<String, Object>> {
+
+        private final ConfigSnapshot settings;
+        private final Mount mount;
+        private final int end;
+        private int position;
+        private Map.Entry<String, Object> next;
+
+        private Entries(ConfigSnapshot settings, Mount mount) {
+            this.settings = settings;
+            this.mount = mount;
+            if (mount == null) {
+                end = settings.keys().size();
+            } else {
+                position = mount.first();
+                end = mount.end();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && position < end) {
+                if (mount != null) {
+                    String key = mount.keyAt(position);
+                    if (key != null) {
+                        next = new AbstractMap.SimpleImmutableEntry<>(key, mount.store.valueAt(position).raw());
+                    }
+                } else {
+                    ConfigValue val = settings.valueAt(position);
+                    if (val != null) {
+                        next = new AbstractMap.SimpleImmutableEntry<>(settings.keys().keyAt(position), val.raw());
+                    }
+                }
+                position++;
+            }
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<String, Object> ret = next;
+            next = null;
+            return ret;
+        }
+
+    }
+
+}
@@ -0,0 +1,173 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable generation of the settings of a {@link MasterConfiguration}. Changes never touch a published
+ * snapshot; they build a new one that is swapped in as a whole, so readers never see a half-applied load.
+ */
+final class ConfigSnapshot {
+
+    static final ConfigSnapshot EMPTY = new ConfigSnapshot(0, KeyTable.EMPTY, new ConfigValue[0], 0);
+
+    private final long generation;
+    private final KeyTable keys;
+    private final ConfigValue[] values;
+    private final int size;
+
+    private ConfigSnapshot(long generation, KeyTable keys, ConfigValue[] values, int size) {
+        this.generation = generation;
+        this.keys = keys;
+        this.values = values;
+        this.size = size;
+    }
+
+    long generation() {
+        return generation;
+    }
+
+    int size() {
+        return size;
+    }
+
+    KeyTable keys() {
+        return keys;
+    }
+
+    ConfigValue lookup(String key) {
+        int id = keys.indexOf(key);
+        return id < 0 ? null : values[id];
+    }
+
+    /**
+     * Gets the value in a slot. Every id handed out by an older snapshot of the same configuration is valid here.
+     *
+     * @param id id of the key
+     * @return value, or null if the key is not set
+     */
+    ConfigValue valueAt(int id) {
+        return values[id];
+    }
+
+    /**
+     * Gets the value of a resolved key. Ids of an older epoch are looked up by their key instead.
+     *
+     * @param id resolved key
+     * @return value, or null if the key is not set
+     */
+    ConfigValue valueAt(KeyId id) {
+        if (id.epoch() != keys.epoch()) {
+            return lookup(id.key());
+        }
+        // an id reserved after this snapshot was published has no value in it
+        return id.id() < values.length ? values[id.id()] : null;
+    }
+
+    /**
+     * Returns a snapshot that also has a slot for the key, or this snapshot if it already has one. The values do
+     * not change, so neither does the generation.
+     *
+     * @param key key to reserve
+     * @return snapshot with a slot for the key
+     */
+    ConfigSnapshot withKey(String key) {
+        if (keys.indexOf(key) >= 0) {
+            return this;
+        }
+        KeyTable table = keys.append(Collections.singletonList(key));
+        return new ConfigSnapshot(generation, table, Arrays.copyOf(values, table.size()), size);
+    }
+
+    /**
+     * Returns a snapshot with the same values whose key table holds only the kept keys. Every key that has a value
+     * has to be kept. The generation does not change.
+     *
+     * @param keep       ids of the keys to keep
+     * @param renumbered filled with the new id of every key, and -1 for the keys that were dropped
+     * @return compacted snapshot
+     */
+    ConfigSnapshot compact(BitSet keep, int[] renumbered) {
+        KeyTable table = keys.compact(keep, renumbered);
+        ConfigValue[] next = new ConfigValue[table.size()];
+        for (int id = 0; id < keys.size(); id++) {
+            if (renumbered[id] >= 0) {
+                next[renumbered[id]] = values[id];
+            }
+        }
+        return new ConfigSnapshot(generation, table, next, size);
+    }
+
+    /**
+     * Returns the next generation with the same values, for changes made outside the values such as mounting a
+     * {@link MappedConfigStore}.
+     *
+     * @return next snapshot
+     */
+    ConfigSnapshot next() {
+        return new ConfigSnapshot(generation + 1, keys, values, size);
+    }
+
+    /**
+     * Returns the next generation with the changes applied on top of this one. A null value removes its key.
+     *
+     * @param changes changes to apply
+     * @return next snapshot
+     */
+    ConfigSnapshot with(Map<String, ConfigValue> changes) {
+        KeyTable table = keys.append(newKeys(changes));
+        ConfigValue[] next = Arrays.copyOf(values, table.size());
+        int count = size;
+        for (Map.Entry<String, ConfigValue> change : changes.entrySet()) {
+            int id = table.indexOf(change.getKey());
+            if (id < 0) {
+                continue;
+            }
+            ConfigValue old = next[id];
+            next[id] = change.getValue();
+            if (old == null && change.getValue() != null) {
+                count++;
+            } else if (old != null && change.getValue() == null) {
+                count--;
+            }
+        }
+        return new ConfigSnapshot(generation + 1, table, next, count);
+    }
+
+    private List<String> newKeys(Map<String, ConfigValue> entries) {
+        List<String> added = new ArrayList<>();
+        for (Map.Entry<String, ConfigValue> entry : entries.entrySet()) {
+            if (entry.getValue() != null && keys.indexOf(entry.getKey()) < 0) {
+                added.add(entry.getKey());
+            }
+        }
+        return added;
+    }
+
+}
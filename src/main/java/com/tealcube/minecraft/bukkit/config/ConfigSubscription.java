@@ -0,0 +1,121 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link ConfigListener} registered with a {@link MasterConfiguration} for a key or a key prefix.
+ */
+public final class ConfigSubscription {
+
+    private static final Logger LOGGER = Logger.getLogger(ConfigSubscription.class.getName());
+
+    private final ChangeDispatcher dispatcher;
+    private final String key;
+    private final boolean prefix;
+    private final ConfigListener listener;
+    private final Executor executor;
+    private final boolean coalesce;
+    private volatile boolean cancelled;
+    private ConfigChanges pending;
+
+    ConfigSubscription(ChangeDispatcher dispatcher, String key, boolean prefix, ConfigListener listener,
+                       Executor executor, boolean coalesce) {
+        this.dispatcher = dispatcher;
+        this.key = key;
+        this.prefix = prefix;
+        this.listener = listener;
+        this.executor = executor;
+        this.coalesce = coalesce;
+    }
+
+    /**
+     * Gets the key, or key prefix, this subscription listens to.
+     *
+     * @return key or prefix
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public boolean isPrefix() {
+        return prefix;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Stops delivering changes to the listener. Changes already handed to an executor are dropped.
+     */
+    public void cancel() {
+        cancelled = true;
+        dispatcher.remove(this);
+    }
+
+    void deliver(ConfigChanges changes) {
+        if (executor == null) {
+            invoke(changes);
+            return;
+        }
+        if (!coalesce) {
+            executor.execute(() -> invoke(changes));
+            return;
+        }
+        synchronized (this) {
+            if (pending != null) {
+                pending = pending.merge(changes);
+                return;
+            }
+            pending = changes;
+        }
+        executor.execute(() -> {
+            ConfigChanges batch;
+            synchronized (this) {
+                batch = pending;
+                pending = null;
+            }
+            if (batch != null && !batch.isEmpty()) {
+                invoke(batch);
+            }
+        });
+    }
+
+    private void invoke(ConfigChanges changes) {
+        if (cancelled) {
+            return;
+        }
+        try {
+            listener.onChange(changes);
+        } catch (RuntimeException e) {
+            // a broken listener must not stop the others
+            LOGGER.log(Level.WARNING, "Listener for " + (prefix ? "prefix '" + key + "'" : "key '" + key + "'")
+                    + " failed on " + changes.getKeys(), e);
+        }
+    }
+
+}
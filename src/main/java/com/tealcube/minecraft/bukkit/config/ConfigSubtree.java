@@ -0,0 +1,152 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * A live view of the settings of a {@link MasterConfiguration} under a path, such as {@code "mobs.zombie"}, read
+ * with keys relative to that path. A view copies nothing; every call goes to the configuration, and walking a view
+ * only visits the settings under its path.
+ */
+public final class ConfigSubtree {
+
+    private final MasterConfiguration configuration;
+    private final String path;
+    private final String prefix;
+
+    ConfigSubtree(MasterConfiguration configuration, String path) {
+        this.configuration = configuration;
+        this.path = path;
+        this.prefix = path.isEmpty() ? "" : path + ".";
+    }
+
+    /**
+     * Gets the path of this subtree.
+     *
+     * @return path, or an empty string for the whole configuration
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Gets the names of the paths directly under this one that have settings, in order.
+     *
+     * @return unmodifiable set of the names of the children
+     * @see MasterConfiguration#getChildren(String)
+     */
+    public Set<String> getChildren() {
+        return configuration.getChildren(path);
+    }
+
+    /**
+     * Gets a view of a path under this one.
+     *
+     * @param path path relative to this subtree
+     * @return view of the nested subtree
+     */
+    public ConfigSubtree subtree(String path) {
+        return new ConfigSubtree(configuration, key(path));
+    }
+
+    /**
+     * Calls the action for every setting under this path, ordered path by path.
+     *
+     * @param action action to call with each relative key and value
+     */
+    public void forEach(BiConsumer<? super String, Object> action) {
+        int start = prefix.length();
+        configuration.forEachWithPrefix(prefix, (key, value) -> action.accept(key.substring(start), value));
+    }
+
+    /**
+     * Gets the relative keys of every setting under this path, in order.
+     *
+     * @return unmodifiable set of relative keys
+     */
+    public Set<String> getKeys() {
+        Set<String> keys = new LinkedHashSet<>();
+        forEach((key, value) -> keys.add(key));
+        return Collections.unmodifiableSet(keys);
+    }
+
+    /**
+     * Copies the settings under this path into a map ordered path by path.
+     *
+     * @return unmodifiable copy keyed by relative key
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> copy = new LinkedHashMap<>();
+        forEach(copy::put);
+        return Collections.unmodifiableMap(copy);
+    }
+
+    public boolean isSet(String key) {
+        return configuration.isSet(key(key));
+    }
+
+    public Object get(String key, Object fallback) {
+        return configuration.get(key(key), fallback);
+    }
+
+    public String getString(String key, String fallback) {
+        return configuration.getString(key(key), fallback);
+    }
+
+    public List<String> getStringList(String key) {
+        return configuration.getStringList(key(key));
+    }
+
+    public boolean getBoolean(String key, boolean fallback) {
+        return configuration.getBoolean(key(key), fallback);
+    }
+
+    public int getInt(String key, int fallback) {
+        return configuration.getInt(key(key), fallback);
+    }
+
+    public long getLong(String key, long fallback) {
+        return configuration.getLong(key(key), fallback);
+    }
+
+    public double getDouble(String key, double fallback) {
+        return configuration.getDouble(key(key), fallback);
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigSubtree[" + path + "]";
+    }
+
+    private String key(String key) {
+        return prefix + key;
+    }
+
+}
@@ -0,0 +1,260 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import java.util.Arrays;
+
+/**
+ * A single setting held by a {@link MasterConfiguration}, parsed once into primitive slots so that typed reads do
+ * not have to re-parse or box the value.
+ */
+final class ConfigValue {
+
+    private static final byte UNRESOLVED = 0;
+    private static final byte PRESENT = 1;
+    private static final byte ABSENT = 2;
+    private static final int MAX_CONVERTED = 8;
+    private static final Object NOT_CONVERTIBLE = new Object();
+
+    private final Object raw;
+    private final SmartConfiguration source;
+    private volatile String text;
+
+    private boolean booleanValue;
+    private int intValue;
+    private long longValue;
+    private double doubleValue;
+    private volatile byte booleanState;
+    private volatile byte intState;
+    private volatile byte longState;
+    private volatile byte doubleState;
+    private volatile Object[] converted;
+
+    private ConfigValue(Object raw, SmartConfiguration source) {
+        this.raw = raw;
+        this.source = source;
+    }
+
+    /**
+     * Wraps an arbitrary value. Strings are parsed lazily on their first typed read, anything else is resolved
+     * immediately and only answers typed reads of its own type.
+     *
+     * @param raw value to wrap
+     * @return wrapped value
+     */
+    static ConfigValue of(Object raw) {
+        return of(raw, null);
+    }
+
+    static ConfigValue of(Object raw, SmartConfiguration source) {
+        ConfigValue value = new ConfigValue(raw, source);
+        if (raw instanceof String) {
+            value.text = (String) raw;
+            return value;
+        }
+        value.booleanState = ABSENT;
+        value.intState = ABSENT;
+        value.longState = ABSENT;
+        value.doubleState = ABSENT;
+        if (raw instanceof Boolean) {
+            value.booleanValue = (Boolean) raw;
+            value.booleanState = PRESENT;
+        } else if (raw instanceof Integer) {
+            value.intValue = (Integer) raw;
+            value.intState = PRESENT;
+        } else if (raw instanceof Long) {
+            value.longValue = (Long) raw;
+            value.longState = PRESENT;
+        } else if (raw instanceof Double) {
+            value.doubleValue = (Double) raw;
+            value.doubleState = PRESENT;
+        }
+        return value;
+    }
+
+    /**
+     * Wraps a scalar read from a configuration file. The value is kept as its string form, the same way
+     * {@link MasterConfiguration} has always exposed file values, but the slot for its native type is filled in
+     * straight away. Other types are converted from the string form on first use.
+     *
+     * @param scalar boolean, number or string read from a file
+     * @param source configuration the scalar was read from
+     * @return wrapped value
+     */
+    static ConfigValue ofScalar(Object scalar, SmartConfiguration source) {
+        if (scalar instanceof String) {
+            return of(scalar, source);
+        }
+        String string = String.valueOf(scalar);
+        ConfigValue value = new ConfigValue(string, source);
+        value.text = string;
+        if (scalar instanceof Boolean) {
+            value.booleanValue = (Boolean) scalar;
+            value.booleanState = PRESENT;
+        } else if (scalar instanceof Integer) {
+            value.intValue = (Integer) scalar;
+            value.intState = PRESENT;
+            value.longValue = value.intValue;
+            value.longState = PRESENT;
+        } else if (scalar instanceof Long) {
+            value.longValue = (Long) scalar;
+            value.longState = PRESENT;
+        } else if (scalar instanceof Double) {
+            value.doubleValue = (Double) scalar;
+            value.doubleState = PRESENT;
+        }
+        return value;
+    }
+
+    static boolean isScalar(Object value) {
+        return value instanceof String || value instanceof Boolean || value instanceof Integer
+                || value instanceof Long || value instanceof Double;
+    }
+
+    Object raw() {
+        return raw;
+    }
+
+    /**
+     * Gets the configuration this value was loaded from.
+     *
+     * @return source configuration, or null if the value was set directly
+     */
+    SmartConfiguration source() {
+        return source;
+    }
+
+    String asString() {
+        String s = text;
+        if (s == null) {
+            s = String.valueOf(raw);
+            text = s;
+        }
+        return s;
+    }
+
+    boolean asBoolean(boolean fallback) {
+        if (booleanState == UNRESOLVED) {
+            // only "true" and "false" are booleans; anything else is a mismatch, as a malformed number is
+            String s = (String) raw;
+            if (s.equalsIgnoreCase("true") || s.equalsIgnoreCase("false")) {
+                booleanValue = s.equalsIgnoreCase("true");
+                booleanState = PRESENT;
+            } else {
+                booleanState = ABSENT;
+            }
+        }
+        return booleanState == PRESENT ? booleanValue : fallback;
+    }
+
+    int asInt(int fallback) {
+        if (intState == UNRESOLVED) {
+            try {
+                intValue = Integer.parseInt((String) raw);
+                intState = PRESENT;
+            } catch (NumberFormatException e) {
+                intState = ABSENT;
+            }
+        }
+        return intState == PRESENT ? intValue : fallback;
+    }
+
+    long asLong(long fallback) {
+        if (longState == UNRESOLVED) {
+            try {
+                longValue = Long.parseLong((String) raw);
+                longState = PRESENT;
+            } catch (NumberFormatException e) {
+                longState = ABSENT;
+            }
+        }
+        return longState == PRESENT ? longValue : fallback;
+    }
+
+    double asDouble(double fallback) {
+        if (doubleState == UNRESOLVED) {
+            try {
+                doubleValue = Double.parseDouble((String) raw);
+                doubleState = PRESENT;
+            } catch (NumberFormatException e) {
+                doubleState = ABSENT;
+            }
+        }
+        return doubleState == PRESENT ? doubleValue : fallback;
+    }
+
+    /**
+     * Returns true if this value can be read as a boolean. The check resolves the slot the same way a read would.
+     *
+     * @return if a boolean read returns this value rather than the fallback
+     */
+    boolean isBoolean() {
+        asBoolean(false);
+        return booleanState == PRESENT;
+    }
+
+    boolean isInt() {
+        asInt(0);
+        return intState == PRESENT;
+    }
+
+    boolean isLong() {
+        asLong(0);
+        return longState == PRESENT;
+    }
+
+    boolean isDouble() {
+        asDouble(0);
+        return doubleState == PRESENT;
+    }
+
+    /**
+     * Converts this value, reusing the result of an earlier conversion with the same converter. A value is replaced
+     * rather than changed when its setting changes, so cached results never go stale. Only the first few converters
+     * used on a value are cached; results of any others are computed on every call.
+     *
+     * @param converter converter to use
+     * @param <T>       type converted to
+     * @return converted value, or null if the converter could not convert it
+     */
+    @SuppressWarnings("unchecked")
+    <T> T convert(ConfigConverter<T> converter) {
+        Object[] cache = converted;
+        int length = cache == null ? 0 : cache.length;
+        for (int i = 0; i < length; i += 2) {
+            if (cache[i] == converter) {
+                return cache[i + 1] == NOT_CONVERTIBLE ? null : (T) cache[i + 1];
+            }
+        }
+        T result = converter.convert(raw);
+        if (length < MAX_CONVERTED * 2) {
+            // a racing conversion may be lost here, which only means it is computed again later
+            Object[] next = cache == null ? new Object[2] : Arrays.copyOf(cache, length + 2);
+            next[length] = converter;
+            next[length + 1] = result == null ? NOT_CONVERTIBLE : result;
+            converted = next;
+        }
+        return result;
+    }
+
+}
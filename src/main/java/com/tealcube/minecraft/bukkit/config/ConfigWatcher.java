@@ -0,0 +1,248 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Watches the files of {@link SmartConfiguration}s and reloads them into a {@link MasterConfiguration} when they
+ * change on disk. Bursts of writes to a file are merged into a single reload, and only the files that changed are
+ * parsed again.
+ * <p>
+ * A changed configuration is loaded again on the watcher thread, which replaces its sections while other threads may
+ * be reading them. Read watched settings through the {@link MasterConfiguration}, whose loads are published whole,
+ * rather than through the configurations themselves. Configurations the MasterConfiguration created for
+ * {@link MasterConfiguration#load(File...)} are never loaded; their files are streamed into it directly. A file that
+ * fails to reload is logged and skipped, and the watcher carries on.
+ */
+public final class ConfigWatcher implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(ConfigWatcher.class.getName());
+
+    private final MasterConfiguration masterConfiguration;
+    private final WatchService watchService;
+    private final Map<Path, List<SmartConfiguration>> watched = new ConcurrentHashMap<>();
+    private final Set<Path> directories = Collections.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
+    private final List<Consumer<? super Set<String>>> listeners = new CopyOnWriteArrayList<>();
+    private volatile long debounce = 250;
+    private volatile boolean running;
+    private Thread thread;
+
+    /**
+     * Instantiates a new ConfigWatcher that reloads changed files into a {@link MasterConfiguration}.
+     *
+     * @param masterConfiguration configuration to load changed files into
+     * @throws IOException if the file system cannot be watched
+     */
+    public ConfigWatcher(MasterConfiguration masterConfiguration) throws IOException {
+        if (masterConfiguration == null) {
+            throw new IllegalArgumentException("masterConfiguration cannot be null");
+        }
+        this.masterConfiguration = masterConfiguration;
+        this.watchService = FileSystems.getDefault().newWatchService();
+    }
+
+    /**
+     * Starts watching the files of the configurations. Configurations without a file are ignored.
+     *
+     * @param configurations configurations to watch
+     * @throws IOException if a directory cannot be watched
+     */
+    public void watch(SmartConfiguration... configurations) throws IOException {
+        for (SmartConfiguration configuration : configurations) {
+            File file = configuration.getFile();
+            if (file == null) {
+                continue;
+            }
+            Path path = file.toPath().toAbsolutePath().normalize();
+            Path directory = path.getParent();
+            if (directories.add(directory)) {
+                directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+            watched.computeIfAbsent(path, p -> new CopyOnWriteArrayList<SmartConfiguration>()).add(configuration);
+        }
+    }
+
+    /**
+     * Adds a listener that is called from the watcher thread with the keys that changed after each reload.
+     *
+     * @param listener listener to add
+     */
+    public void addListener(Consumer<? super Set<String>> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<? super Set<String>> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Sets how long a file has to stay untouched before it is reloaded. Defaults to 250 milliseconds.
+     *
+     * @param delay quiet period before reloading
+     * @param unit  unit of the delay
+     */
+    public void setDebounce(long delay, TimeUnit unit) {
+        this.debounce = Math.max(0, unit.toMillis(delay));
+    }
+
+    /**
+     * Starts the watcher thread.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "ConfigWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the watcher thread and releases the underlying watch service.
+     *
+     * @throws IOException if the watch service cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+        watchService.close();
+    }
+
+    private void run() {
+        Map<Path, Long> pending = new LinkedHashMap<>();
+        while (running) {
+            WatchKey key;
+            try {
+                key = pending.isEmpty() ? watchService.take() : watchService.poll(timeUntilDue(pending),
+                        TimeUnit.MILLISECONDS);
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            if (key != null) {
+                collect(key, pending);
+            }
+            List<Path> due = new ArrayList<>();
+            long now = System.currentTimeMillis();
+            for (Iterator<Map.Entry<Path, Long>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<Path, Long> entry = it.next();
+                if (now - entry.getValue() >= debounce) {
+                    due.add(entry.getKey());
+                    it.remove();
+                }
+            }
+            if (!due.isEmpty()) {
+                reload(due);
+            }
+        }
+    }
+
+    private void collect(WatchKey key, Map<Path, Long> pending) {
+        Path directory = (Path) key.watchable();
+        long now = System.currentTimeMillis();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                for (Path path : watched.keySet()) {
+                    if (directory.equals(path.getParent())) {
+                        pending.put(path, now);
+                    }
+                }
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            if (watched.containsKey(path)) {
+                pending.remove(path);
+                pending.put(path, now);
+            }
+        }
+        key.reset();
+    }
+
+    private long timeUntilDue(Map<Path, Long> pending) {
+        long oldest = pending.values().iterator().next();
+        return Math.max(1, oldest + debounce - System.currentTimeMillis());
+    }
+
+    private void reload(List<Path> paths) {
+        Set<SmartConfiguration> configurations = new HashSet<>();
+        Set<String> changed = new LinkedHashSet<>();
+        for (Path path : paths) {
+            for (SmartConfiguration configuration : watched.get(path)) {
+                if (configurations.add(configuration)) {
+                    try {
+                        if (!(configuration instanceof SmartYamlConfiguration) ||
+                                !((SmartYamlConfiguration) configuration).isDeferred()) {
+                            configuration.load();
+                        }
+                        changed.addAll(masterConfiguration.reloadSource(configuration).getKeys());
+                    } catch (RuntimeException e) {
+                        LOGGER.log(Level.WARNING, "Could not reload " + path, e);
+                    }
+                }
+            }
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+        Set<String> keys = Collections.unmodifiableSet(changed);
+        for (Consumer<? super Set<String>> listener : listeners) {
+            try {
+                listener.accept(keys);
+            } catch (RuntimeException e) {
+                // a broken listener must not stop the watcher
+                LOGGER.log(Level.WARNING, "Config listener failed", e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import java.util.function.Predicate;
+
+/**
+ * A handle for a setting of a {@link MasterConfiguration} that is read through a {@link ConfigConverter}.
+ *
+ * @param <T> type converted to
+ */
+public final class ConvertedKey<T> extends ConfigKey<T> {
+
+    private final ConfigConverter<T> converter;
+    private final Predicate<ConfigValue> convertible;
+    private final T fallback;
+
+    ConvertedKey(MasterConfiguration configuration, String key, ConfigConverter<T> converter, T fallback) {
+        super(configuration, key);
+        if (converter == null) {
+            throw new IllegalArgumentException("converter cannot be null");
+        }
+        this.converter = converter;
+        this.convertible = v -> v.convert(converter) != null;
+        this.fallback = fallback;
+    }
+
+    /**
+     * Gets the current value, or the fallback if the key is not set or cannot be converted. The conversion is
+     * cached until the setting changes.
+     *
+     * @return current value
+     */
+    public T get() {
+        ConfigValue val = read(convertible);
+        T converted = val == null ? null : val.convert(converter);
+        return converted == null ? fallback : converted;
+    }
+
+    @Override
+    public T getValue() {
+        return get();
+    }
+
+    public ConfigConverter<T> getConverter() {
+        return converter;
+    }
+
+    public T getFallback() {
+        return fallback;
+    }
+
+}
@@ -0,0 +1,500 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads and writes the JSON used by {@link SmartJsonConfiguration}. Objects are read into the same nested maps and
+ * lists a YAML parse produces, with integers read as {@link Integer}, {@link Long} or {@link BigInteger} depending on
+ * their size and any other number as a {@link Double}. A file can also be read straight into the flattened entries a
+ * {@link MasterConfiguration} holds, without building a tree of sections first.
+ */
+final class JsonFormat {
+
+    private final char[] text;
+    private int position;
+
+    private JsonFormat(char[] text) {
+        this.text = text;
+    }
+
+    /**
+     * Parses a JSON document whose root is an object.
+     *
+     * @param contents JSON to parse
+     * @return root object, or an empty map if the document is blank
+     * @throws IllegalArgumentException if the JSON is malformed or its root is not an object
+     */
+    static Map<String, Object> parse(String contents) {
+        JsonFormat parser = new JsonFormat(contents.toCharArray());
+        if (!parser.skipWhitespace()) {
+            return new LinkedHashMap<>();
+        }
+        parser.expect('{');
+        Map<String, Object> root = parser.object();
+        parser.end();
+        return root;
+    }
+
+    /**
+     * Reads a JSON file into flattened entries.
+     *
+     * @param file      file to read
+     * @param prefix    prefix of every key, including its trailing dot
+     * @param separator separator between the keys of nested objects
+     * @param source    configuration the values are recorded as coming from
+     * @return flattened entries, or null if the file cannot be read or has to be loaded as a tree
+     */
+    static Map<String, ConfigValue> flatten(File file, String prefix, char separator, SmartConfiguration source) {
+        Map<String, ConfigValue> flattened = new LinkedHashMap<>();
+        try {
+            JsonFormat parser = new JsonFormat(new String(Files.readAllBytes(file.toPath()),
+                    StandardCharsets.UTF_8).toCharArray());
+            if (parser.skipWhitespace()) {
+                parser.expect('{');
+                parser.flatten(prefix, separator, source, flattened);
+                parser.end();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+        return flattened;
+    }
+
+    /**
+     * Writes the contents of a section as an indented JSON object.
+     *
+     * @param section section to write
+     * @return JSON of the section
+     */
+    static String write(ConfigurationSection section) {
+        StringBuilder builder = new StringBuilder();
+        writeValue(builder, section, 0);
+        return builder.append('\n').toString();
+    }
+
+    private void flatten(String path, char separator, SmartConfiguration source, Map<String, ConfigValue> flattened) {
+        if (skipWhitespace() && text[position] == '}') {
+            position++;
+            return;
+        }
+        Set<String> seen = new HashSet<>();
+        do {
+            String key = key();
+            // the tree would merge or replace these differently, so such files are loaded as a tree instead
+            if (key.isEmpty() || key.indexOf(separator) >= 0 || !seen.add(key)) {
+                throw new IllegalArgumentException("Key " + key + " cannot be flattened");
+            }
+            String child = path + key;
+            skipWhitespace();
+            if (position < text.length && text[position] == '{') {
+                position++;
+                flatten(child + separator, separator, source, flattened);
+            } else {
+                Object value = value();
+                if (value != null) {
+                    flattened.put(child, ConfigValue.isScalar(value) ? ConfigValue.ofScalar(value, source) :
+                            ConfigValue.of(value, source));
+                }
+            }
+        } while (next('}'));
+    }
+
+    private Map<String, Object> object() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        if (skipWhitespace() && text[position] == '}') {
+            position++;
+            return object;
+        }
+        do {
+            String key = key();
+            object.put(key, value());
+        } while (next('}'));
+        return object;
+    }
+
+    private List<Object> array() {
+        List<Object> array = new ArrayList<>();
+        if (skipWhitespace() && text[position] == ']') {
+            position++;
+            return array;
+        }
+        do {
+            array.add(value());
+        } while (next(']'));
+        return array;
+    }
+
+    private String key() {
+        skipWhitespace();
+        expect('"');
+        String key = string();
+        skipWhitespace();
+        expect(':');
+        return key;
+    }
+
+    /**
+     * Reads past a comma or the closing character of an object or array.
+     *
+     * @return true if another member follows
+     */
+    private boolean next(char close) {
+        skipWhitespace();
+        if (position < text.length) {
+            char c = text[position++];
+            if (c == ',') {
+                return true;
+            }
+            if (c == close) {
+                return false;
+            }
+        }
+        throw malformed("expected ',' or '" + close + "'");
+    }
+
+    private Object value() {
+        if (!skipWhitespace()) {
+            throw malformed("expected a value");
+        }
+        char c = text[position++];
+        switch (c) {
+            case '{':
+                return object();
+            case '[':
+                return array();
+            case '"':
+                return string();
+            case 't':
+                literal("rue");
+                return Boolean.TRUE;
+            case 'f':
+                literal("alse");
+                return Boolean.FALSE;
+            case 'n':
+                literal("ull");
+                return null;
+            default:
+                position--;
+                return number();
+        }
+    }
+
+    private String string() {
+        int start = position;
+        while (position < text.length) {
+            char c = text[position];
+            if (c == '"') {
+                position++;
+                return new String(text, start, position - 1 - start);
+            }
+            if (c == '\\') {
+                return escapedString(start);
+            }
+            if (c < 0x20) {
+                throw malformed("control character in string");
+            }
+            position++;
+        }
+        throw malformed("unterminated string");
+    }
+
+    private String escapedString(int start) {
+        StringBuilder builder = new StringBuilder(position - start + 16);
+        builder.append(text, start, position - start);
+        while (position < text.length) {
+            char c = text[position++];
+            if (c == '"') {
+                return builder.toString();
+            }
+            if (c < 0x20) {
+                throw malformed("control character in string");
+            }
+            if (c != '\\') {
+                builder.append(c);
+                continue;
+            }
+            if (position >= text.length) {
+                break;
+            }
+            char escaped = text[position++];
+            switch (escaped) {
+                case '"':
+                case '\\':
+                case '/':
+                    builder.append(escaped);
+                    break;
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'u':
+                    if (position + 4 > text.length) {
+                        throw malformed("truncated unicode escape");
+                    }
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(text[position++], 16);
+                        if (digit < 0) {
+                            throw malformed("invalid unicode escape");
+                        }
+                        code = code << 4 | digit;
+                    }
+                    builder.append((char) code);
+                    break;
+                default:
+                    throw malformed("invalid escape");
+            }
+        }
+        throw malformed("unterminated string");
+    }
+
+    private Object number() {
+        int start = position;
+        boolean negative = position < text.length && text[position] == '-';
+        if (negative) {
+            position++;
+        }
+        int digitsStart = position;
+        long value = 0;
+        while (position < text.length && text[position] >= '0' && text[position] <= '9') {
+            value = value * 10 + (text[position++] - '0');
+        }
+        int digits = position - digitsStart;
+        if (digits == 0 || digits > 1 && text[digitsStart] == '0') {
+            throw malformed("invalid number");
+        }
+        boolean integral = true;
+        if (position < text.length && text[position] == '.') {
+            integral = false;
+            position++;
+            skipDigits();
+        }
+        if (position < text.length && (text[position] == 'e' || text[position] == 'E')) {
+            integral = false;
+            position++;
+            if (position < text.length && (text[position] == '+' || text[position] == '-')) {
+                position++;
+            }
+            skipDigits();
+        }
+        if (!integral) {
+            return Double.parseDouble(new String(text, start, position - start));
+        }
+        if (digits > 18) {
+            BigInteger big = new BigInteger(new String(text, start, position - start));
+            return big.bitLength() < 64 ? (Object) big.longValue() : big;
+        }
+        value = negative ? -value : value;
+        return value == (int) value ? (Object) (int) value : (Object) value;
+    }
+
+    private void skipDigits() {
+        int start = position;
+        while (position < text.length && text[position] >= '0' && text[position] <= '9') {
+            position++;
+        }
+        if (position == start) {
+            throw malformed("invalid number");
+        }
+    }
+
+    private void literal(String rest) {
+        for (int i = 0; i < rest.length(); i++) {
+            if (position >= text.length || text[position++] != rest.charAt(i)) {
+                throw malformed("invalid literal");
+            }
+        }
+    }
+
+    private void expect(char c) {
+        if (position >= text.length || text[position] != c) {
+            throw malformed("expected '" + c + "'");
+        }
+        position++;
+    }
+
+    private void end() {
+        if (skipWhitespace()) {
+            throw malformed("unexpected content after the root object");
+        }
+    }
+
+    /**
+     * Skips whitespace, and a byte order mark at the start of the document.
+     *
+     * @return false if the end of the document was reached
+     */
+    private boolean skipWhitespace() {
+        if (position == 0 && text.length > 0 && text[0] == '\uFEFF') {
+            position++;
+        }
+        while (position < text.length) {
+            char c = text[position];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return true;
+            }
+            position++;
+        }
+        return false;
+    }
+
+    private IllegalArgumentException malformed(String message) {
+        int line = 1;
+        int column = 1;
+        for (int i = 0; i < position && i < text.length; i++) {
+            if (text[i] == '\n') {
+                line++;
+                column = 1;
+            } else {
+                column++;
+            }
+        }
+        return new IllegalArgumentException("Malformed JSON, " + message + " at line " + line + ", column " +
+                column);
+    }
+
+    private static void writeValue(StringBuilder builder, Object value, int indent) {
+        if (value instanceof ConfigurationSection) {
+            writeObject(builder, ((ConfigurationSection) value).getValues(false), indent);
+        } else if (value instanceof Map) {
+            writeObject(builder, (Map<?, ?>) value, indent);
+        } else if (value instanceof Collection) {
+            writeArray(builder, (Collection<?>) value, indent);
+        } else if (value instanceof Boolean || value instanceof Integer || value instanceof Long ||
+                value instanceof Short || value instanceof Byte || value instanceof BigInteger) {
+            builder.append(value);
+        } else if (value instanceof Number && !Double.isNaN(((Number) value).doubleValue()) &&
+                !Double.isInfinite(((Number) value).doubleValue())) {
+            builder.append(value);
+        } else if (value == null) {
+            builder.append("null");
+        } else {
+            writeString(builder, String.valueOf(value));
+        }
+    }
+
+    private static void writeObject(StringBuilder builder, Map<?, ?> object, int indent) {
+        if (object.isEmpty()) {
+            builder.append("{}");
+            return;
+        }
+        builder.append('{');
+        boolean first = true;
+        for (Map.Entry<?, ?> entry : object.entrySet()) {
+            if (!first) {
+                builder.append(',');
+            }
+            first = false;
+            newLine(builder, indent + 1);
+            writeString(builder, String.valueOf(entry.getKey()));
+            builder.append(": ");
+            writeValue(builder, entry.getValue(), indent + 1);
+        }
+        newLine(builder, indent);
+        builder.append('}');
+    }
+
+    private static void writeArray(StringBuilder builder, Collection<?> array, int indent) {
+        if (array.isEmpty()) {
+            builder.append("[]");
+            return;
+        }
+        builder.append('[');
+        boolean first = true;
+        for (Object element : array) {
+            if (!first) {
+                builder.append(',');
+            }
+            first = false;
+            newLine(builder, indent + 1);
+            writeValue(builder, element, indent + 1);
+        }
+        newLine(builder, indent);
+        builder.append(']');
+    }
+
+    private static void newLine(StringBuilder builder, int indent) {
+        builder.append('\n');
+        for (int i = 0; i < indent; i++) {
+            builder.append("  ");
+        }
+    }
+
+    private static void writeString(StringBuilder builder, String string) {
+        builder.append('"');
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+            }
+        }
+        builder.append('"');
+    }
+
+}
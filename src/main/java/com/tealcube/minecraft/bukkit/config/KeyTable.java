@@ -0,0 +1,452 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * An immutable open addressing table from keys to dense ids. Ids are handed out in insertion order, so a table can
+ * be extended into a new one without renumbering the keys it already holds.
+ * <p>
+ * Keys are not kept as whole strings. Every dotted prefix is a node that holds its parent node and its last path
+ * segment, interned, so the segments that settings share ({@code weight}, {@code enabled}, ...) are stored once and a
+ * key costs a few array slots instead of a string of its own. Key strings are built again when asked for.
+ * <p>
+ * The children of every node are indexed on first use, sorted by segment, so the keys under a path can be walked in
+ * order at a cost that depends on how many there are rather than on the size of the table.
+ * <p>
+ * Extending a table never drops a key, so a namespace whose keys keep changing, such as one keyed by player ids,
+ * grows its table with every new key. {@link #compact(BitSet, int[])} builds a table of only the keys still in use.
+ * Compacting renumbers the ids and starts a new {@link #epoch() epoch}, so an id is only valid against tables of the
+ * epoch it was handed out in.
+ */
+final class KeyTable {
+
+    static final KeyTable EMPTY = new KeyTable(new int[]{-1}, new String[]{""}, new int[]{0}, new int[]{0}, 1,
+            new int[0], 0, 0);
+
+    private static final int ROOT = 0;
+
+    private final int[] parents;
+    private final String[] segments;
+    private final int[] hashes;
+    private final int[] nodeIds;
+    private final int nodeCount;
+    private final int[] keyNodes;
+    private final int size;
+    private final int epoch;
+    private final int[] table;
+    private final int mask;
+    private volatile int[][] children;
+
+    private KeyTable(int[] parents, String[] segments, int[] hashes, int[] nodeIds, int nodeCount, int[] keyNodes,
+                     int size, int epoch) {
+        this.parents = parents;
+        this.segments = segments;
+        this.hashes = hashes;
+        this.nodeIds = nodeIds;
+        this.nodeCount = nodeCount;
+        this.keyNodes = keyNodes;
+        this.size = size;
+        this.epoch = epoch;
+        int capacity = 4;
+        while (capacity < nodeCount * 2) {
+            capacity <<= 1;
+        }
+        table = new int[capacity];
+        mask = capacity - 1;
+        for (int node = ROOT + 1; node < nodeCount; node++) {
+            int i = spread(hashes[node]) & mask;
+            while (table[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            table[i] = node;
+        }
+    }
+
+    /**
+     * Gets the id of a key.
+     *
+     * @param key key to find
+     * @return id of the key, or -1 if it is not in the table
+     */
+    int indexOf(String key) {
+        int node = node(key);
+        return node < 0 ? -1 : nodeIds[node] - 1;
+    }
+
+    /**
+     * Gets the node of a path, whether or not the path is a key itself.
+     *
+     * @param path path to find, or an empty string for the root
+     * @return node of the path, or -1 if no key starts with it
+     */
+    int node(String path) {
+        if (path.isEmpty()) {
+            return ROOT;
+        }
+        int hash = path.hashCode();
+        int i = spread(hash) & mask;
+        int node;
+        while ((node = table[i]) != 0) {
+            if (hashes[node] == hash && matches(node, path)) {
+                return node;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the id of the key a node stands for.
+     *
+     * @param node node to check
+     * @return id of the key, or -1 if the node is only a prefix of other keys
+     */
+    int idOf(int node) {
+        return nodeIds[node] - 1;
+    }
+
+    String segment(int node) {
+        return segments[node];
+    }
+
+    /**
+     * Calls the action with each child of a node, in order of their segments.
+     *
+     * @param node   parent node
+     * @param action action to call with each child node
+     */
+    void forEachChild(int node, IntConsumer action) {
+        int[][] index = children();
+        int[] starts = index[0];
+        int[] nodes = index[1];
+        for (int i = starts[node]; i < starts[node + 1]; i++) {
+            action.accept(nodes[i]);
+        }
+    }
+
+    /**
+     * Calls the action with the id of every key in the subtree of a node, the node itself first, ordered path by
+     * path. Stops as soon as the action returns false.
+     *
+     * @param node   node to start at
+     * @param action action to call with each id
+     * @return false if the action stopped the walk
+     */
+    boolean forEachKey(int node, IntPredicate action) {
+        int[][] index = children();
+        int[] starts = index[0];
+        int[] nodes = index[1];
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = node;
+        while (top > 0) {
+            int n = stack[--top];
+            if (nodeIds[n] != 0 && !action.test(nodeIds[n] - 1)) {
+                return false;
+            }
+            int count = starts[n + 1] - starts[n];
+            if (top + count > stack.length) {
+                stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + count));
+            }
+            for (int i = starts[n + 1] - 1; i >= starts[n]; i--) {
+                stack[top++] = nodes[i];
+            }
+        }
+        return true;
+    }
+
+    String keyAt(int id) {
+        return pathOf(keyNodes[id]);
+    }
+
+    private String pathOf(int node) {
+        int length = -1;
+        for (int n = node; n != ROOT; n = parents[n]) {
+            length += segments[n].length() + 1;
+        }
+        char[] chars = new char[length];
+        int end = length;
+        for (int n = node; n != ROOT; n = parents[n]) {
+            String segment = segments[n];
+            end -= segment.length();
+            segment.getChars(0, segment.length(), chars, end);
+            if (end > 0) {
+                chars[--end] = '.';
+            }
+        }
+        return new String(chars);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets the epoch of this table. Extended tables keep the epoch of the table they were extended from, and ids
+     * only carry over between tables of the same epoch.
+     *
+     * @return epoch of this table
+     */
+    int epoch() {
+        return epoch;
+    }
+
+    /**
+     * Returns a table holding these keys followed by the new ones. Existing ids are kept.
+     *
+     * @param newKeys keys that are not in this table yet
+     * @return extended table
+     */
+    KeyTable append(List<String> newKeys) {
+        if (newKeys.isEmpty()) {
+            return this;
+        }
+        Builder builder = new Builder(this, newKeys.size());
+        for (String key : newKeys) {
+            builder.add(key);
+        }
+        return builder.build(epoch);
+    }
+
+    /**
+     * Returns a table of the next epoch holding only the kept keys, in the order of their ids here.
+     *
+     * @param keep       ids of the keys to keep
+     * @param renumbered  filled with the new id of every kept key, and -1 for the others; as long as this table
+     * @return compacted table
+     */
+    KeyTable compact(BitSet keep, int[] renumbered) {
+        Builder builder = new Builder(EMPTY, keep.cardinality());
+        for (int id = 0; id < size; id++) {
+            if (keep.get(id)) {
+                renumbered[id] = builder.size;
+                builder.add(keyAt(id));
+            } else {
+                renumbered[id] = -1;
+            }
+        }
+        return builder.build(epoch + 1);
+    }
+
+    private boolean matches(int node, String key) {
+        int end = key.length();
+        for (int n = node; n != ROOT; n = parents[n]) {
+            String segment = segments[n];
+            end -= segment.length();
+            if (end < 0 || !key.regionMatches(end, segment, 0, segment.length())) {
+                return false;
+            }
+            if (parents[n] != ROOT && (--end < 0 || key.charAt(end) != '.')) {
+                return false;
+            }
+        }
+        return end == 0;
+    }
+
+    /**
+     * Gets the child index: where the children of each node start, and every node other than the root grouped by
+     * parent and sorted by segment.
+     */
+    private int[][] children() {
+        int[][] index = children;
+        if (index == null) {
+            int[] sorted = new int[nodeCount - 1];
+            for (int node = ROOT + 1; node < nodeCount; node++) {
+                sorted[node - 1] = node;
+            }
+            sortBySegment(sorted, new int[sorted.length], 0, sorted.length);
+            int[] starts = new int[nodeCount + 1];
+            for (int node = ROOT + 1; node < nodeCount; node++) {
+                starts[parents[node] + 1]++;
+            }
+            for (int node = 0; node < nodeCount; node++) {
+                starts[node + 1] += starts[node];
+            }
+            int[] next = Arrays.copyOf(starts, nodeCount);
+            int[] nodes = new int[sorted.length];
+            for (int node : sorted) {
+                nodes[next[parents[node]]++] = node;
+            }
+            index = new int[][]{starts, nodes};
+            children = index;
+        }
+        return index;
+    }
+
+    private void sortBySegment(int[] nodes, int[] scratch, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        sortBySegment(nodes, scratch, from, middle);
+        sortBySegment(nodes, scratch, middle, to);
+        if (segments[nodes[middle - 1]].compareTo(segments[nodes[middle]]) <= 0) {
+            return;
+        }
+        System.arraycopy(nodes, from, scratch, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || left < middle && segments[scratch[left]].compareTo(segments[scratch[right]]) <= 0) {
+                nodes[i] = scratch[left++];
+            } else {
+                nodes[i] = scratch[right++];
+            }
+        }
+    }
+
+    private int child(int parent, String segment, int hash) {
+        int i = spread(hash) & mask;
+        int node;
+        while ((node = table[i]) != 0) {
+            if (hashes[node] == hash && parents[node] == parent && segments[node].equals(segment)) {
+                return node;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Grows copies of the arrays of a table while new keys are added. Nodes created during the build are found
+     * through a table of their own until {@link #build()} hashes everything again.
+     */
+    private static final class Builder {
+
+        private final KeyTable base;
+        private int[] parents;
+        private String[] segments;
+        private int[] hashes;
+        private int[] nodeIds;
+        private int nodeCount;
+        private int[] keyNodes;
+        private int size;
+        private int[] added = new int[16];
+        private int addedCount;
+
+        private Builder(KeyTable base, int expected) {
+            this.base = base;
+            int capacity = base.nodeCount + expected * 2;
+            parents = Arrays.copyOf(base.parents, capacity);
+            segments = Arrays.copyOf(base.segments, capacity);
+            hashes = Arrays.copyOf(base.hashes, capacity);
+            nodeIds = Arrays.copyOf(base.nodeIds, capacity);
+            nodeCount = base.nodeCount;
+            keyNodes = Arrays.copyOf(base.keyNodes, base.size + expected);
+            size = base.size;
+        }
+
+        private void add(String key) {
+            int node = ROOT;
+            int hash = 0;
+            int start = 0;
+            while (true) {
+                int dot = key.indexOf('.', start);
+                int end = dot < 0 ? key.length() : dot;
+                if (node != ROOT) {
+                    hash = 31 * hash + '.';
+                }
+                for (int i = start; i < end; i++) {
+                    hash = 31 * hash + key.charAt(i);
+                }
+                node = node(node, key, start, end, hash);
+                if (dot < 0) {
+                    break;
+                }
+                start = dot + 1;
+            }
+            if (nodeIds[node] == 0) {
+                if (size == keyNodes.length) {
+                    keyNodes = Arrays.copyOf(keyNodes, size * 2 + 1);
+                }
+                keyNodes[size] = node;
+                nodeIds[node] = ++size;
+            }
+        }
+
+        private int node(int parent, String key, int start, int end, int hash) {
+            String segment = key.substring(start, end);
+            int node = base.child(parent, segment, hash);
+            if (node >= 0) {
+                return node;
+            }
+            int mask = added.length - 1;
+            int i = spread(hash) & mask;
+            while ((node = added[i]) != 0) {
+                if (hashes[node] == hash && parents[node] == parent && segments[node].equals(segment)) {
+                    return node;
+                }
+                i = (i + 1) & mask;
+            }
+            if (nodeCount == parents.length) {
+                int capacity = nodeCount * 2;
+                parents = Arrays.copyOf(parents, capacity);
+                segments = Arrays.copyOf(segments, capacity);
+                hashes = Arrays.copyOf(hashes, capacity);
+                nodeIds = Arrays.copyOf(nodeIds, capacity);
+            }
+            node = nodeCount++;
+            parents[node] = parent;
+            segments[node] = segment.intern();
+            hashes[node] = hash;
+            added[i] = node;
+            if (++addedCount * 2 > added.length) {
+                rehash();
+            }
+            return node;
+        }
+
+        private void rehash() {
+            int[] grown = new int[added.length * 2];
+            int mask = grown.length - 1;
+            for (int node : added) {
+                if (node != 0) {
+                    int i = spread(hashes[node]) & mask;
+                    while (grown[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    grown[i] = node;
+                }
+            }
+            added = grown;
+        }
+
+        private KeyTable build(int epoch) {
+            return new KeyTable(Arrays.copyOf(parents, nodeCount), Arrays.copyOf(segments, nodeCount),
+                    Arrays.copyOf(hashes, nodeCount), Arrays.copyOf(nodeIds, nodeCount), nodeCount,
+                    Arrays.copyOf(keyNodes, size), size, epoch);
+        }
+
+    }
+
+}
@@ -0,0 +1,540 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.MemorySection;
+import org.bukkit.configuration.file.YamlConstructor;
+import org.bukkit.configuration.file.YamlRepresenter;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.CollectionStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.NodeEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+
+import java.io.File;
+import java.io.StringReader;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link SmartYamlConfiguration} that only parses the top-level sections of its file when they are first used.
+ * Loading just checks the file and finds where each top-level key starts, and sections that are read but never
+ * changed can be dropped again, either when more than {@link #setMaxLoadedSections(int)} are held or when the JVM
+ * runs low on memory. Reading every key, as {@link MasterConfiguration#load(SmartConfiguration...)} does, parses the
+ * whole file. Files this cannot split safely, such as ones using flow style, anchors, tags or top-level keys holding
+ * the path separator, are parsed in full instead.
+ *
+ * Reads and writes synchronize on the configuration, since a read may parse a section.
+ */
+public class LazySmartYamlConfiguration extends SmartYamlConfiguration {
+
+    private final Yaml yaml = new Yaml(new YamlConstructor(), new YamlRepresenter(), new DumperOptions());
+    private String contents;
+    private Map<String, Slice> slices = new HashMap<>();
+    private Set<String> pending = new HashSet<>();
+    private List<String> order = new ArrayList<>();
+    private final LinkedHashMap<String, TrackedSection> loaded = new LinkedHashMap<>(16, 0.75f, true);
+    private int maxLoadedSections = Integer.MAX_VALUE;
+    private SoftReference<Object> pressure = new SoftReference<>(new Object());
+    private boolean materializing;
+    private boolean loadingAll;
+
+    /**
+     * Instantiates a new LazySmartYamlConfiguration with a selected {@link java.io.File} to load/save from/to and
+     * automatically indexes the file.
+     *
+     * @param file file to load/save from/to
+     */
+    public LazySmartYamlConfiguration(File file) {
+        this(file, '.');
+    }
+
+    /**
+     * Instantiates a new LazySmartYamlConfiguration with a selected {@link java.io.File} to load/save from/to and
+     * automatically indexes the file.
+     *
+     * @param file      file to load/save from/to
+     * @param separator separator char
+     */
+    public LazySmartYamlConfiguration(File file, char separator) {
+        super();
+        setFile(file);
+        options().pathSeparator(separator);
+        load();
+    }
+
+    /**
+     * Sets how many unchanged top-level sections may stay parsed at once. Beyond that, the least recently used ones
+     * are dropped and parsed again when next needed.
+     *
+     * @param maxLoadedSections maximum number of unchanged sections to keep
+     */
+    public synchronized void setMaxLoadedSections(int maxLoadedSections) {
+        this.maxLoadedSections = Math.max(1, maxLoadedSections);
+        release();
+    }
+
+    public synchronized int getMaxLoadedSections() {
+        return maxLoadedSections;
+    }
+
+    /**
+     * Gets how many top-level sections have not been parsed yet.
+     *
+     * @return number of unparsed sections
+     */
+    public synchronized int getPendingSections() {
+        return pending.size();
+    }
+
+    @Override
+    public synchronized void loadFromString(String contents) throws InvalidConfigurationException {
+        Map<String, Slice> found = new HashMap<>();
+        List<String> keys = new ArrayList<>();
+        if (!index(contents, found, keys) || !splittable(contents)) {
+            super.loadFromString(contents);
+            reset(null, new HashMap<String, Slice>(), new ArrayList<String>());
+            return;
+        }
+        map.clear();
+        reset(contents, found, keys);
+        String header = parseHeader(contents);
+        if (header.length() > 0) {
+            options().header(header);
+        }
+    }
+
+    @Override
+    public synchronized Object get(String path, Object def) {
+        if (pressure.get() == null) {
+            release();
+        }
+        materialize(head(path));
+        return super.get(path, def);
+    }
+
+    @Override
+    public synchronized void set(String path, Object value) {
+        String head = head(path);
+        if (head.length() != path.length() || !pending.remove(head)) {
+            materialize(head);
+        }
+        loaded.remove(head);
+        super.set(path, value);
+    }
+
+    @Override
+    public synchronized ConfigurationSection createSection(String path) {
+        String head = head(path);
+        materialize(head);
+        if (head.length() != path.length()) {
+            loaded.remove(head);
+            return super.createSection(path);
+        }
+        TrackedSection section = new TrackedSection(this, path, this, null);
+        map.put(path, section);
+        if (materializing) {
+            loaded.put(path, section);
+        } else {
+            pending.remove(path);
+            loaded.remove(path);
+        }
+        return section;
+    }
+
+    @Override
+    public synchronized Set<String> getKeys(boolean deep) {
+        if (deep) {
+            materializeAll();
+            return super.getKeys(true);
+        }
+        Set<String> keys = new LinkedHashSet<>();
+        for (String key : order) {
+            if (pending.contains(key) || map.containsKey(key)) {
+                keys.add(key);
+            }
+        }
+        keys.addAll(map.keySet());
+        return keys;
+    }
+
+    @Override
+    public synchronized Map<String, Object> getValues(boolean deep) {
+        materializeAll();
+        return super.getValues(deep);
+    }
+
+    @Override
+    public synchronized String saveToString() {
+        materializeAll();
+        return super.saveToString();
+    }
+
+    @Override
+    File getCacheFile() {
+        // parsing lazily already avoids most of the work a cache would save
+        return null;
+    }
+
+    private void reset(String contents, Map<String, Slice> slices, List<String> keys) {
+        this.contents = contents;
+        this.slices = slices;
+        this.pending = new HashSet<>(slices.keySet());
+        this.order = keys;
+        this.loaded.clear();
+    }
+
+    private String head(String path) {
+        int index = path.indexOf(options().pathSeparator());
+        return index < 0 ? path : path.substring(0, index);
+    }
+
+    private void materialize(String key) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        if (loaded.containsKey(key)) {
+            // refreshes the key in the access order
+            loaded.get(key);
+            return;
+        }
+        if (!pending.remove(key)) {
+            return;
+        }
+        Slice slice = slices.get(key);
+        Object parsed;
+        try {
+            parsed = yaml.load(contents.substring(slice.start, slice.end));
+        } catch (YAMLException e) {
+            pending.add(key);
+            materializeFully();
+            return;
+        }
+        if (!(parsed instanceof Map)) {
+            pending.add(key);
+            materializeFully();
+            return;
+        }
+        convert(key, ((Map<?, ?>) parsed).values().iterator().next());
+        release();
+    }
+
+    private void materializeAll() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        // everything has to be in memory at once here, so nothing is dropped until the next single section loads
+        loadingAll = true;
+        try {
+            for (String key : new ArrayList<>(pending)) {
+                materialize(key);
+            }
+        } finally {
+            loadingAll = false;
+        }
+        Map<String, Object> current = new LinkedHashMap<>(map);
+        map.clear();
+        for (String key : order) {
+            if (current.containsKey(key)) {
+                map.put(key, current.remove(key));
+            }
+        }
+        map.putAll(current);
+    }
+
+    /**
+     * Parses the whole file at once, for files whose sections cannot be parsed on their own.
+     */
+    private void materializeFully() {
+        Map<String, Object> all = new HashMap<>();
+        try {
+            Object parsed = yaml.load(contents);
+            if (parsed instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) parsed).entrySet()) {
+                    all.put(String.valueOf(entry.getKey()), entry.getValue());
+                }
+            }
+        } catch (YAMLException e) {
+            // the document was checked when it was loaded, so it has stopped parsing only if something went wrong
+            throw new IllegalStateException("could not parse the sections of " + getFile(), e);
+        }
+        Set<String> keys = pending;
+        pending = new HashSet<>();
+        for (String key : keys) {
+            if (all.containsKey(key)) {
+                convert(key, all.get(key));
+            }
+        }
+        loaded.clear();
+    }
+
+    private void convert(String key, Object value) {
+        materializing = true;
+        try {
+            convertMapsToSections(Collections.singletonMap(key, value), this);
+        } finally {
+            materializing = false;
+        }
+    }
+
+    /**
+     * Drops unchanged sections beyond the limit, or all of them once the JVM has started clearing soft references.
+     */
+    private void release() {
+        if (contents == null || loadingAll) {
+            return;
+        }
+        boolean lowMemory = pressure.get() == null;
+        int keep = lowMemory ? 0 : maxLoadedSections;
+        Iterator<Map.Entry<String, TrackedSection>> it = loaded.entrySet().iterator();
+        while (loaded.size() > keep && it.hasNext()) {
+            Map.Entry<String, TrackedSection> entry = it.next();
+            it.remove();
+            map.remove(entry.getKey());
+            entry.getValue().detached = true;
+            pending.add(entry.getKey());
+        }
+        if (lowMemory) {
+            pressure = new SoftReference<>(new Object());
+        }
+    }
+
+    /**
+     * Called before a parsed section is changed. Changed sections are never dropped, and a dropped section that is
+     * changed through a reference someone kept is put back so the change is not lost.
+     */
+    private synchronized void modified(TrackedSection top) {
+        if (materializing) {
+            return;
+        }
+        String key = top.getName();
+        loaded.remove(key);
+        if (top.detached) {
+            top.detached = false;
+            pending.remove(key);
+            map.put(key, top);
+        }
+    }
+
+    /**
+     * Finds the top-level keys of a block style YAML document and where each one starts and ends.
+     *
+     * @return false if the document has to be parsed in full
+     */
+    private boolean index(String text, Map<String, Slice> slices, List<String> keys) {
+        char separator = options().pathSeparator();
+        // a repeated key takes the place of its last occurrence, as it does when SnakeYAML parses the document
+        Set<String> found = new LinkedHashSet<>();
+        String current = null;
+        int currentStart = 0;
+        int lineStart = 0;
+        while (lineStart < text.length()) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = text.length();
+            }
+            char first = text.charAt(lineStart);
+            if (first == ' ' || first == '\t' || first == '#' || first == '\r' || first == '\n') {
+                if (current == null && !isBlank(text, lineStart, lineEnd)) {
+                    return false;
+                }
+            } else {
+                if ("-%{[?\"'&*!|>@`,".indexOf(first) >= 0 || text.startsWith("...", lineStart)) {
+                    return false;
+                }
+                int colon = findColon(text, lineStart, lineEnd);
+                if (colon < 0) {
+                    return false;
+                }
+                String key = keyName(text.substring(lineStart, colon).trim());
+                if (key == null || key.indexOf(separator) >= 0) {
+                    // a key holding the separator is a path to Bukkit, which nests it under its first part
+                    return false;
+                }
+                if (current != null) {
+                    slices.put(current, new Slice(currentStart, lineStart));
+                }
+                current = key;
+                currentStart = lineStart;
+                found.remove(key);
+                found.add(key);
+            }
+            lineStart = lineEnd + 1;
+        }
+        if (current != null) {
+            slices.put(current, new Slice(currentStart, text.length()));
+        }
+        keys.addAll(found);
+        return true;
+    }
+
+    /**
+     * Runs the whole document through the YAML parser without building it, so that a broken file fails to load,
+     * leaving the previous contents in place, instead of losing the sections that do not parse later on.
+     *
+     * @return false if the document uses anchors, aliases or tags, which are left to a full parse
+     * @throws InvalidConfigurationException if the document is not valid YAML
+     */
+    private boolean splittable(String text) throws InvalidConfigurationException {
+        try {
+            for (Event event : yaml.parse(new StringReader(text))) {
+                if (event instanceof AliasEvent || event instanceof NodeEvent && ((NodeEvent) event).getAnchor() != null
+                        || event instanceof ScalarEvent && ((ScalarEvent) event).getTag() != null
+                        || event instanceof CollectionStartEvent && ((CollectionStartEvent) event).getTag() != null) {
+                    return false;
+                }
+            }
+        } catch (YAMLException e) {
+            throw new InvalidConfigurationException(e);
+        }
+        return true;
+    }
+
+    private static boolean isBlank(String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '#') {
+                return true;
+            }
+            if (!Character.isWhitespace(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int findColon(String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == '#') {
+                return -1;
+            }
+            if (text.charAt(i) == ':' && (i + 1 == end || Character.isWhitespace(text.charAt(i + 1)))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the key Bukkit would use for a plain YAML key. Keys that YAML reads as something other than a string,
+     * such as numbers or booleans, are resolved through SnakeYAML.
+     */
+    private String keyName(String text) {
+        if (text.isEmpty()) {
+            return null;
+        }
+        boolean plain = Character.isLetter(text.charAt(0)) || text.charAt(0) == '_';
+        for (int i = 0; plain && i < text.length(); i++) {
+            char c = text.charAt(i);
+            plain = Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == ' ';
+        }
+        if (plain && !isReserved(text)) {
+            return text;
+        }
+        try {
+            Object key = yaml.load(text);
+            return key == null || key instanceof Map || key instanceof List ? null : key.toString();
+        } catch (YAMLException e) {
+            return null;
+        }
+    }
+
+    private static boolean isReserved(String text) {
+        switch (text.toLowerCase()) {
+            case "y":
+            case "n":
+            case "yes":
+            case "no":
+            case "true":
+            case "false":
+            case "on":
+            case "off":
+            case "null":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static final class Slice {
+
+        private final int start;
+        private final int end;
+
+        private Slice(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+    }
+
+    /**
+     * A section that reports changes to the configuration it was parsed into.
+     */
+    private static final class TrackedSection extends MemorySection {
+
+        private final LazySmartYamlConfiguration owner;
+        private final TrackedSection top;
+        private boolean detached;
+
+        private TrackedSection(ConfigurationSection parent, String path, LazySmartYamlConfiguration owner,
+                               TrackedSection top) {
+            super(parent, path);
+            this.owner = owner;
+            this.top = top == null ? this : top;
+        }
+
+        @Override
+        public void set(String path, Object value) {
+            owner.modified(top);
+            super.set(path, value);
+        }
+
+        @Override
+        public ConfigurationSection createSection(String path) {
+            if (path.indexOf(owner.options().pathSeparator()) >= 0) {
+                return super.createSection(path);
+            }
+            owner.modified(top);
+            TrackedSection section = new TrackedSection(this, path, owner, top);
+            map.put(path, section);
+            return section;
+        }
+
+    }
+
+}
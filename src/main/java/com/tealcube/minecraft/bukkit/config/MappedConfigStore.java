@@ -0,0 +1,434 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A read-only file of flattened settings that is memory-mapped instead of read onto the heap. Mounting a store with
+ * {@link MasterConfiguration#mount(MappedConfigStore)} serves the namespaces it holds straight from the mapping
+ * through the usual getters, so data sets of hundreds of thousands of settings cost the heap a few objects rather
+ * than a few objects per setting. The operating system shares the mapped pages between every process that opens the
+ * same file.
+ * <p>
+ * Keys are found through an open addressing table of their hashes, and entries are kept sorted path by path, the
+ * same order {@link MasterConfiguration#forEachWithPrefix} visits settings in, so the settings under any prefix are
+ * one run of entries found by binary search. Values are stored in the same encoding as {@link BinaryConfigCache} and
+ * decoded on every read, so conversions are not cached as they are for settings held on the heap; copy hot values
+ * into fields with a {@link ConfigBinding} instead.
+ * <p>
+ * A store file is never changed once written. {@link #write(File, Map)} replaces the file atomically, so processes
+ * that still map the old file keep reading it until they open the new one.
+ */
+public final class MappedConfigStore {
+
+    private static final int MAGIC = 0x53594d31;
+    private static final int HEADER = 16;
+
+    private final File file;
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int mask;
+    private final int offsets;
+    private final Map<String, int[]> namespaces;
+
+    private MappedConfigStore(File file, ByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER || buffer.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a mapped configuration store");
+        }
+        size = buffer.getInt(4);
+        int capacity = buffer.getInt(8);
+        mask = capacity - 1;
+        offsets = HEADER + capacity * 4;
+        ByteBuffer view = buffer.duplicate();
+        view.position(offsets + size * 4);
+        int count = buffer.getInt(12);
+        Map<String, int[]> ranges = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            byte[] name = new byte[view.getInt()];
+            view.get(name);
+            ranges.put(new String(name, StandardCharsets.UTF_8),
+                    new int[]{view.getInt(), view.getInt(), view.getInt()});
+        }
+        namespaces = ranges;
+    }
+
+    /**
+     * Maps a store file written by {@link #write(File, Map)}.
+     *
+     * @param file store file
+     * @return mapped store
+     * @throws IOException if the file cannot be mapped or is not a store
+     */
+    public static MappedConfigStore open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new MappedConfigStore(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (RuntimeException e) {
+            throw new IOException(file + " is not a mapped configuration store", e);
+        }
+    }
+
+    /**
+     * Flattens the configurations the same way {@link MasterConfiguration#load(SmartConfiguration...)} does, writes
+     * them to a store file and maps it. When several configurations set the same key, the one passed last wins.
+     *
+     * @param file           store file to write
+     * @param configurations configurations to store
+     * @return mapped store
+     * @throws IOException if the file cannot be written or a value cannot be stored
+     */
+    public static MappedConfigStore write(File file, SmartConfiguration... configurations) throws IOException {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        for (SmartConfiguration configuration : configurations) {
+            for (Map.Entry<String, ConfigValue> entry : MasterConfiguration.flatten(configuration).entrySet()) {
+                settings.put(entry.getKey(), entry.getValue().raw());
+            }
+        }
+        return write(file, settings);
+    }
+
+    /**
+     * Streams files into a store file the same way {@link MasterConfiguration#load(File...)} does and maps it.
+     * Each file becomes the namespace of its name.
+     *
+     * @param file  store file to write
+     * @param files files to store
+     * @return mapped store
+     * @throws IOException if the file cannot be written or a value cannot be stored
+     */
+    public static MappedConfigStore write(File file, File... files) throws IOException {
+        SmartConfiguration[] configurations = new SmartConfiguration[files.length];
+        for (int i = 0; i < files.length; i++) {
+            configurations[i] = ConfigFormat.forFile(files[i]).deferred(files[i]);
+        }
+        return write(file, configurations);
+    }
+
+    /**
+     * Writes settings to a store file and maps it. Values may be strings, numbers, booleans, and lists and maps of
+     * those; null values are skipped. A store file that is replaced keeps its permissions, and a new one is readable
+     * by everyone, so servers running as other users can map it too.
+     *
+     * @param file     store file to write
+     * @param settings flattened keys and their values
+     * @return mapped store
+     * @throws IOException if the file cannot be written or a value cannot be stored
+     */
+    public static MappedConfigStore write(File file, Map<String, ?> settings) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        for (Map.Entry<String, ?> entry : settings.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) {
+                entries.add(new Entry(entry.getKey(), entry.getValue()));
+            }
+        }
+        Collections.sort(entries, (a, b) -> compare(a.bytes, b.bytes));
+        int size = entries.size();
+        int capacity = 4;
+        while (capacity < size * 2) {
+            capacity <<= 1;
+        }
+
+        Map<String, int[]> ranges = new LinkedHashMap<>();
+        for (int index = 0; index < size; index++) {
+            int[] range = ranges.computeIfAbsent(ShardTable.namespaceOf(entries.get(index).key),
+                    n -> new int[]{0, -1, 0});
+            if (range[1] < 0) {
+                range[1] = index;
+            }
+            range[0]++;
+            range[2] = index + 1;
+        }
+        ByteArrayOutputStream namespaceBytes = new ByteArrayOutputStream();
+        DataOutputStream namespaceOut = new DataOutputStream(namespaceBytes);
+        for (Map.Entry<String, int[]> range : ranges.entrySet()) {
+            byte[] name = range.getKey().getBytes(StandardCharsets.UTF_8);
+            namespaceOut.writeInt(name.length);
+            namespaceOut.write(name);
+            for (int i : range.getValue()) {
+                namespaceOut.writeInt(i);
+            }
+        }
+        namespaceOut.flush();
+
+        int start = HEADER + capacity * 4 + size * 4 + namespaceBytes.size();
+        int[] entryOffsets = new int[size];
+        ByteArrayOutputStream entryBytes = new ByteArrayOutputStream();
+        DataOutputStream entryOut = new DataOutputStream(entryBytes);
+        for (int index = 0; index < size; index++) {
+            entryOffsets[index] = start + entryOut.size();
+            Entry entry = entries.get(index);
+            entryOut.writeInt(entry.key.hashCode());
+            entryOut.writeInt(entry.bytes.length);
+            entryOut.write(entry.bytes);
+            BinaryConfigCache.writeValue(entryOut, entry.value);
+        }
+        entryOut.flush();
+
+        int[] slots = new int[capacity];
+        for (int index = 0; index < size; index++) {
+            int i = spread(entries.get(index).key.hashCode()) & (capacity - 1);
+            while (slots[i] != 0) {
+                i = (i + 1) & (capacity - 1);
+            }
+            slots[i] = index + 1;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(start + entryBytes.size());
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(size);
+        out.writeInt(capacity);
+        out.writeInt(ranges.size());
+        for (int slot : slots) {
+            out.writeInt(slot);
+        }
+        for (int offset : entryOffsets) {
+            out.writeInt(offset);
+        }
+        namespaceBytes.writeTo(out);
+        entryBytes.writeTo(out);
+        out.flush();
+        SmartYamlConfiguration.writeAtomically(file, bytes.toByteArray());
+        return open(file);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Gets the number of settings in the store.
+     *
+     * @return number of settings
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the namespaces the store holds settings for.
+     *
+     * @return unmodifiable set of namespaces
+     */
+    public Set<String> getNamespaces() {
+        return Collections.unmodifiableSet(namespaces.keySet());
+    }
+
+    public boolean containsKey(String key) {
+        return key != null && indexOf(key) >= 0;
+    }
+
+    /**
+     * Finds an entry without allocating for keys made of ASCII characters.
+     *
+     * @param key key to find
+     * @return index of the entry, or -1 if the key is not stored
+     */
+    int indexOf(String key) {
+        int hash = key.hashCode();
+        int i = spread(hash) & mask;
+        int slot;
+        while ((slot = buffer.getInt(HEADER + i * 4)) != 0) {
+            int offset = buffer.getInt(offsets + (slot - 1) * 4);
+            if (buffer.getInt(offset) == hash && keyEquals(offset + 4, key)) {
+                return slot - 1;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    String keyAt(int index) {
+        int offset = buffer.getInt(offsets + index * 4);
+        byte[] bytes = new byte[buffer.getInt(offset + 4)];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset + 8);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes the value of an entry.
+     *
+     * @param index index of the entry
+     * @return new value holding the decoded raw value
+     */
+    ConfigValue valueAt(int index) {
+        int offset = buffer.getInt(offsets + index * 4);
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset + 8 + buffer.getInt(offset + 4));
+        return ConfigValue.of(BinaryConfigCache.readValue(view));
+    }
+
+    /**
+     * Gets the entries of a namespace. Entries of a named namespace are contiguous; keys without a dot sort among
+     * the others, so the range of the root namespace also spans entries of other namespaces.
+     *
+     * @param namespace namespace to find
+     * @return number of entries, first index and index after the last one, or null if none are stored
+     */
+    int[] range(String namespace) {
+        return namespaces.get(namespace);
+    }
+
+    private boolean keyEquals(int position, String key) {
+        int length = buffer.getInt(position);
+        int start = position + 4;
+        if (length == key.length()) {
+            for (int i = 0; i < length; i++) {
+                char c = key.charAt(i);
+                if (c >= 0x80) {
+                    return slowKeyEquals(position, key);
+                }
+                if (buffer.get(start + i) != c) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        // a key only encodes to more bytes than it has characters when some of them are not ASCII
+        return length > key.length() && slowKeyEquals(position, key);
+    }
+
+    private boolean slowKeyEquals(int position, String key) {
+        byte[] bytes = new byte[buffer.getInt(position)];
+        ByteBuffer view = buffer.duplicate();
+        view.position(position + 4);
+        view.get(bytes);
+        return Arrays.equals(bytes, key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Gets the entries whose keys start with the prefix.
+     *
+     * @param prefix prefix of the keys
+     * @return first index and index after the last one
+     */
+    int[] prefixRange(String prefix) {
+        byte[] probe = prefix.getBytes(StandardCharsets.UTF_8);
+        return new int[]{bound(probe, false), bound(probe, true)};
+    }
+
+    /**
+     * Gets the index of the first entry that sorts after every key starting with the prefix.
+     *
+     * @param prefix prefix of the keys
+     * @return index after the last entry starting with the prefix
+     */
+    int skip(String prefix) {
+        return bound(prefix.getBytes(StandardCharsets.UTF_8), true);
+    }
+
+    /**
+     * Binary searches for the first entry at or after the keys starting with the probe, or the first one after
+     * them when {@code after} is true.
+     */
+    private int bound(byte[] probe, boolean after) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int cmp = comparePrefix(buffer.getInt(offsets + middle * 4), probe);
+            if (cmp < 0 || after && cmp == 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compares the start of the key of an entry with the probe, returning 0 when the key starts with it.
+     */
+    private int comparePrefix(int offset, byte[] probe) {
+        int length = buffer.getInt(offset + 4);
+        int start = offset + 8;
+        int common = Math.min(length, probe.length);
+        for (int i = 0; i < common; i++) {
+            int diff = symbol(buffer.get(start + i)) - symbol(probe[i]);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length < probe.length ? -1 : 0;
+    }
+
+    /**
+     * Compares keys path by path: a dot sorts before every other character, so {@code a.b.c} comes before
+     * {@code a.b-c} and every key under a path follows the path itself.
+     */
+    private static int compare(byte[] a, byte[] b) {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            int diff = symbol(a[i]) - symbol(b[i]);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    private static int symbol(byte b) {
+        return b == '.' ? 0 : (b & 0xff) + 1;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    @Override
+    public String toString() {
+        return "MappedConfigStore[" + file + ", " + size + " settings]";
+    }
+
+    private static final class Entry {
+
+        private final String key;
+        private final byte[] bytes;
+        private final Object value;
+
+        private Entry(String key, Object value) {
+            this.key = key;
+            this.bytes = key.getBytes(StandardCharsets.UTF_8);
+            this.value = value;
+        }
+
+    }
+
+}
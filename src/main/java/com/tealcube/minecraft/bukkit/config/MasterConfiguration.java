@@ -22,20 +22,66 @@
  */
 package com.tealcube.minecraft.bukkit.config;
 
-import org.apache.commons.lang3.math.NumberUtils;
+import org.bukkit.configuration.ConfigurationSection;
 
+import java.io.File;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+/**
+ * Settings flattened from any number of configurations, each key prefixed with the name of its file.
+ * <p>
+ * Settings are split into namespaces by the part of the key before the first dot, which for loaded files is the file
+ * name. Each namespace is published on its own: loading or reloading one file only copies and replaces the settings
+ * of its namespace, while reads of other namespaces carry on against settings, handles and cached conversions that
+ * did not change. A load that spans several namespaces publishes each of them at once, one after the other.
+ * <p>
+ * Publishing copies the settings of the namespace, so every write costs time in proportion to the size of its
+ * namespace; batch writes with {@link #setAll(Map)}. Removed keys keep their slot until most of a namespace's slots
+ * are empty, at which point the next write drops them, so namespaces with ever-changing keys stay bounded by the
+ * keys they actually hold.
+ * <p>
+ * Keys are stored as a tree of shared path segments rather than as one string each, which roughly halves the heap a
+ * large configuration retains (see {@code MasterMemoryReport} in the benchmarks). In exchange, reads by string walk
+ * the key a segment at a time and take about twice as long as a hash lookup (around 330 ns against 185 ns), and
+ * {@link #forEachKey(Consumer)}, {@link #getKeys()} and the like rebuild each key string as they go, making a full
+ * pass over 400000 keys about three times slower. For hot reads, resolve the key once with {@link #intKey} and its
+ * siblings or with a {@link #binding(Class)}, and read through that, which skips the lookup entirely.
+ */
 public final class MasterConfiguration {
 
-    private Map<String, Object> settingMap;
+    private final Object shardLock = new Object();
+    private final Map<SmartYamlConfiguration, Consumer<SmartYamlConfiguration>> tracked = new HashMap<>();
+    private final ChangeDispatcher dispatcher = new ChangeDispatcher();
+    private final Map<String, Object> settingView = new SettingView();
+    private volatile ShardTable shards;
+    private volatile ConfigMetrics metrics;
 
     public MasterConfiguration() {
-        settingMap = new ConcurrentHashMap<>();
+        shards = ShardTable.EMPTY;
     }
 
     public static MasterConfiguration loadFromFiles(SmartConfiguration... configurations) {
@@ -44,46 +90,599 @@ public final class MasterConfiguration {
         return masterConfiguration;
     }
 
+    /**
+     * Reads the files into a new MasterConfiguration. Files are streamed straight into the settings without
+     * building a tree of sections for each of them; see {@link #load(File...)}.
+     *
+     * @param files files to load
+     * @return loaded MasterConfiguration
+     */
+    public static MasterConfiguration loadFromFiles(File... files) {
+        MasterConfiguration masterConfiguration = new MasterConfiguration();
+        masterConfiguration.load(files);
+        return masterConfiguration;
+    }
+
+    /**
+     * Flattens the configurations on the executor and completes with a MasterConfiguration holding all of them.
+     * When several configurations set the same key, the one passed last wins.
+     *
+     * @param executor       executor to flatten on
+     * @param configurations configurations to load
+     * @return future of the loaded MasterConfiguration
+     */
+    public static CompletableFuture<MasterConfiguration> loadFromFilesAsync(Executor executor,
+                                                                          SmartConfiguration... configurations) {
+        MasterConfiguration masterConfiguration = new MasterConfiguration();
+        return masterConfiguration.loadAsync(executor, configurations).thenApply(v -> masterConfiguration);
+    }
+
+    /**
+     * Parses and flattens the files on the executor and completes with a MasterConfiguration holding all of
+     * them, so startup can carry on with other work in the meantime. When several files set the same key, the one
+     * passed last wins.
+     *
+     * @param executor executor to parse and flatten on
+     * @param files    files to load
+     * @return future of the loaded MasterConfiguration
+     */
+    public static CompletableFuture<MasterConfiguration> loadFromFilesAsync(Executor executor, File... files) {
+        List<Supplier<SmartConfiguration>> sources = new ArrayList<>();
+        if (files != null) {
+            for (File file : files) {
+                sources.add(() -> ConfigFormat.forFile(file).deferred(file));
+            }
+        }
+        MasterConfiguration masterConfiguration = new MasterConfiguration();
+        return flattenAll(executor, sources).thenApply(loaded -> {
+            masterConfiguration.apply(loaded, false);
+            return masterConfiguration;
+        });
+    }
+
+    /**
+     * Loads the settings of the configurations on top of the current ones. All of the settings become visible at
+     * once when loading finishes.
+     *
+     * @param configurations configurations to load
+     */
     public void load(SmartConfiguration... configurations) {
         if (configurations == null) {
             return;
         }
-        for (SmartConfiguration yc : configurations) {
-            String ending = yc.getFileName().substring(yc.getFileName().lastIndexOf("."));
-            String name = yc.getFileName().replace(ending, "");
-            for (String key : yc.getKeys(true)) {
-                if (yc.isConfigurationSection(key)) {
-                    continue;
-                }
-                Object value;
-                if (yc.isBoolean(key) || yc.isDouble(key) || yc.isInt(key) || yc.isLong(key) || yc
-                        .isString(key)) {
-                    value = yc.getString(key);
-                } else {
-                    value = yc.get(key);
+        apply(flatten(configurations), false);
+    }
+
+    /**
+     * Reads files on top of the current settings, in the {@link ConfigFormat#forFile(File) format} each one is found
+     * to be in. Each file is streamed from the parser straight into flattened settings, which skips building and
+     * walking a tree of sections; YAML files using aliases, merge keys or explicit tags are parsed the usual way
+     * instead. The settings of each file are owned by a {@link SmartYamlConfiguration}, or the subclass for its
+     * format, returned by {@link #getSource(String)}, which stays empty until it is loaded itself. Passing that
+     * configuration to {@link #reloadSource(SmartConfiguration)} streams the file again.
+     *
+     * @param files files to load
+     */
+    public void load(File... files) {
+        if (files == null) {
+            return;
+        }
+        SmartConfiguration[] configurations = new SmartConfiguration[files.length];
+        for (int i = 0; i < files.length; i++) {
+            configurations[i] = ConfigFormat.forFile(files[i]).deferred(files[i]);
+        }
+        load(configurations);
+    }
+
+    /**
+     * Flattens the configurations on the executor and then loads them on top of the current settings. When several
+     * configurations set the same key, the one passed last wins.
+     *
+     * @param executor       executor to flatten on
+     * @param configurations configurations to load
+     * @return future completed once the settings are visible
+     */
+    public CompletableFuture<Void> loadAsync(Executor executor, SmartConfiguration... configurations) {
+        if (configurations == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return flattenAll(executor, sources(configurations)).thenAccept(loaded -> apply(loaded, false));
+    }
+
+    /**
+     * Replaces every setting with the settings of the configurations, dropping keys that are no longer present. The
+     * new settings are built before being swapped in, so readers see either the old or the new settings and never a
+     * mix of both.
+     *
+     * @param configurations configurations to load
+     */
+    public void reload(SmartConfiguration... configurations) {
+        Map<String, ConfigValue> loaded = configurations == null ? Collections.<String, ConfigValue>emptyMap() :
+                flatten(configurations);
+        apply(loaded, true);
+    }
+
+    /**
+     * Loads a single configuration again and applies only what changed since it was last loaded: keys it added or
+     * changed are set, and keys it no longer has are removed unless another configuration has set them since. The
+     * rest of the settings are left alone.
+     *
+     * @param configuration configuration to reload, after its own contents have been loaded again
+     * @return changes that were applied
+     */
+    public ConfigChanges reloadSource(SmartConfiguration configuration) {
+        Map<String, ConfigValue> loaded = flatten(configuration);
+        ConfigChanges changes = commitReloaded(Collections.singletonList(configuration), loaded);
+        dispatcher.drain();
+        return changes;
+    }
+
+    /**
+     * Loads every configuration that currently owns settings again, on the {@link ConfigExecutors#getDefault()
+     * default executor}.
+     *
+     * @return future of the changes that were applied
+     * @see #reloadAllAsync(Executor, SmartConfiguration...)
+     */
+    public CompletableFuture<ConfigChanges> reloadAllAsync() {
+        return reloadAllAsync(ConfigExecutors.getDefault());
+    }
+
+    /**
+     * Loads every configuration that currently owns settings again, on the executor.
+     *
+     * @param executor executor to load and flatten on
+     * @return future of the changes that were applied
+     * @see #reloadAllAsync(Executor, SmartConfiguration...)
+     */
+    public CompletableFuture<ConfigChanges> reloadAllAsync(Executor executor) {
+        Set<SmartConfiguration> configurations = new LinkedHashSet<>();
+        for (ConfigShard shard : shards.shards()) {
+            shard.addSources(configurations);
+        }
+        return reloadAllAsync(executor, configurations.toArray(new SmartConfiguration[configurations.size()]));
+    }
+
+    /**
+     * Loads each configuration from its file and flattens it on the executor, all of them at once, and then applies
+     * the results together as one change, the same way {@link #reloadSource(SmartConfiguration)} applies a single
+     * one. Nothing is published until every configuration has been read, and then each namespace is swapped in as a
+     * whole. When several configurations set the same key, the one passed last wins.
+     *
+     * @param executor       executor to load and flatten on
+     * @param configurations configurations to reload
+     * @return future of the changes that were applied
+     */
+    public CompletableFuture<ConfigChanges> reloadAllAsync(Executor executor, SmartConfiguration... configurations) {
+        if (configurations == null || configurations.length == 0) {
+            return CompletableFuture.completedFuture(ConfigChanges.none(getGeneration()));
+        }
+        List<Supplier<SmartConfiguration>> sources = new ArrayList<>();
+        List<SmartYamlConfiguration> notify = new CopyOnWriteArrayList<>();
+        for (SmartConfiguration configuration : configurations) {
+            sources.add(() -> {
+                if (!(configuration instanceof SmartYamlConfiguration)) {
+                    configuration.load();
+                } else if (!((SmartYamlConfiguration) configuration).isDeferred()) {
+                    // load listeners run once everything is published, so tracking does not publish early
+                    if (((SmartYamlConfiguration) configuration).loadSilently()) {
+                        notify.add((SmartYamlConfiguration) configuration);
+                    }
                 }
-                set(name + "." + key, value);
+                return configuration;
+            });
+        }
+        List<SmartConfiguration> reloaded = Arrays.asList(configurations.clone());
+        return flattenAll(executor, sources).thenApply(loaded -> {
+            ConfigChanges changes = commitReloaded(reloaded, loaded);
+            dispatcher.drain();
+            for (SmartYamlConfiguration configuration : notify) {
+                configuration.fireLoaded();
+            }
+            return changes;
+        });
+    }
+
+    /**
+     * Removes every setting that was loaded from the configuration and is still owned by it.
+     *
+     * @param configuration configuration to unload
+     * @return changes that were applied
+     */
+    public ConfigChanges unload(SmartConfiguration configuration) {
+        Map<String, ConfigValue> removals = new LinkedHashMap<>();
+        for (String key : getKeys(configuration)) {
+            removals.put(key, null);
+        }
+        return apply(removals, false);
+    }
+
+    /**
+     * Serves every namespace held by the store from its mapping instead of the heap. Reads through the getters,
+     * handles and bindings work as usual, but the settings of a mounted namespace are read-only: setting, loading or
+     * removing its keys throws {@link IllegalStateException} until the store is unmounted. Mounting a newer store
+     * replaces the older one in every namespace the newer one holds. Listeners are not called for the settings a
+     * store brings in or takes away, but the generations of its namespaces move on.
+     *
+     * @param store store to mount
+     * @throws IllegalStateException if a namespace of the store already holds settings that were loaded or set
+     */
+    public void mount(MappedConfigStore store) {
+        if (store == null) {
+            throw new IllegalArgumentException("store cannot be null");
+        }
+        List<ConfigShard> mounted = new ArrayList<>();
+        for (String namespace : store.getNamespaces()) {
+            ConfigShard shard = shardFor(namespace.isEmpty() ? "" : namespace + ".");
+            if (shard.store() == null && shard.size() > 0) {
+                throw new IllegalStateException("namespace " + namespace + " already has settings");
+            }
+            mounted.add(shard);
+        }
+        for (ConfigShard shard : mounted) {
+            shard.mount(store);
+        }
+    }
+
+    /**
+     * Stops serving the namespaces still mounted from the store. They are left empty and can be loaded again.
+     *
+     * @param store store to unmount
+     */
+    public void unmount(MappedConfigStore store) {
+        for (ConfigShard shard : shards.shards()) {
+            shard.unmount(store);
+        }
+    }
+
+    /**
+     * Gets the configuration a setting was loaded from.
+     *
+     * @param key key to check
+     * @return configuration the setting came from, or null if it is not set or was set directly
+     */
+    public SmartConfiguration getSource(String key) {
+        ConfigValue val = lookup(key);
+        return val == null ? null : val.source();
+    }
+
+    /**
+     * Gets the keys currently owned by a configuration.
+     *
+     * @param configuration configuration to check
+     * @return copy of the keys loaded from the configuration
+     */
+    public Set<String> getKeys(SmartConfiguration configuration) {
+        Set<String> copy = new LinkedHashSet<>();
+        for (ConfigShard shard : shards.shards()) {
+            shard.addKeys(configuration, copy);
+        }
+        return Collections.unmodifiableSet(copy);
+    }
+
+    /**
+     * Gets the namespaces that currently have a shard of their own, in the order they were first used. The root
+     * namespace of keys without a dot is the empty string.
+     *
+     * @return copy of the namespaces
+     */
+    public Set<String> getNamespaces() {
+        Set<String> namespaces = new LinkedHashSet<>();
+        for (ConfigShard shard : shards.shards()) {
+            namespaces.add(shard.namespace());
+        }
+        return Collections.unmodifiableSet(namespaces);
+    }
+
+    /**
+     * Keeps the settings of a configuration up to date: every time it is loaded again, it is applied with
+     * {@link #reloadSource(SmartConfiguration)}. The configuration is loaded into this one straight away.
+     *
+     * @param configuration configuration to follow
+     */
+    public void track(SmartYamlConfiguration configuration) {
+        Consumer<SmartYamlConfiguration> reloader = this::reloadSource;
+        synchronized (tracked) {
+            if (tracked.containsKey(configuration)) {
+                return;
             }
+            tracked.put(configuration, reloader);
+        }
+        configuration.addLoadListener(reloader);
+        reloadSource(configuration);
+    }
+
+    /**
+     * Stops following a configuration passed to {@link #track(SmartYamlConfiguration)}. Its settings are kept.
+     *
+     * @param configuration configuration to stop following
+     */
+    public void untrack(SmartYamlConfiguration configuration) {
+        Consumer<SmartYamlConfiguration> reloader;
+        synchronized (tracked) {
+            reloader = tracked.remove(configuration);
+        }
+        if (reloader != null) {
+            configuration.removeLoadListener(reloader);
         }
     }
 
+    /**
+     * Calls the listener on the thread that made the change whenever the key changes. When another thread is
+     * delivering changes at the same time, that thread delivers these ones as well, after its own.
+     *
+     * @param key      key to listen to
+     * @param listener listener to call
+     * @return subscription that can be cancelled
+     */
+    public ConfigSubscription subscribe(String key, ConfigListener listener) {
+        return dispatcher.add(key, false, listener, null, false);
+    }
+
+    /**
+     * Calls the listener on the executor whenever the key changes. When {@code coalesce} is true, changes made
+     * before the executor gets round to the listener are merged into one call, so an executor that runs tasks on the
+     * next server tick gets at most one batch per tick.
+     *
+     * @param key      key to listen to
+     * @param listener listener to call
+     * @param executor executor to call the listener on
+     * @param coalesce whether to merge changes that pile up before the listener runs
+     * @return subscription that can be cancelled
+     */
+    public ConfigSubscription subscribe(String key, ConfigListener listener, Executor executor, boolean coalesce) {
+        return dispatcher.add(key, false, listener, executor, coalesce);
+    }
+
+    /**
+     * Calls the listener on the thread that made the change whenever a key starting with the prefix changes, such
+     * as {@code "mobs.zombie."}. An empty prefix listens to every key.
+     *
+     * @param prefix   prefix of the keys to listen to
+     * @param listener listener to call
+     * @return subscription that can be cancelled
+     * @see #subscribe(String, ConfigListener)
+     */
+    public ConfigSubscription subscribePrefix(String prefix, ConfigListener listener) {
+        return dispatcher.add(prefix, true, listener, null, false);
+    }
+
+    /**
+     * Calls the listener on the executor whenever a key starting with the prefix changes.
+     *
+     * @param prefix   prefix of the keys to listen to
+     * @param listener listener to call
+     * @param executor executor to call the listener on
+     * @param coalesce whether to merge changes that pile up before the listener runs
+     * @return subscription that can be cancelled
+     * @see #subscribe(String, ConfigListener, Executor, boolean)
+     */
+    public ConfigSubscription subscribePrefix(String prefix, ConfigListener listener, Executor executor,
+                                              boolean coalesce) {
+        return dispatcher.add(prefix, true, listener, executor, coalesce);
+    }
+
+    /**
+     * Sets a value, removing the key if the value is null. Every call publishes a new generation of the key's
+     * namespace, copying its settings, so prefer {@link #setAll(Map)} when changing many keys.
+     *
+     * @param key    key to set
+     * @param object value to set
+     * @throws IllegalArgumentException if the key is empty or has an empty path segment
+     */
     public void set(String key, Object object) {
-        if (settingMap == null) {
+        if (key == null) {
+            return;
+        }
+        checkKey(key);
+        apply(Collections.singletonMap(key, object == null ? null : ConfigValue.of(object)), false);
+    }
+
+    /**
+     * Sets every value of the map at once, removing keys whose value is null.
+     *
+     * @param settings keys and values to set
+     * @throws IllegalArgumentException if a key is empty or has an empty path segment, before anything is set
+     */
+    public void setAll(Map<String, ?> settings) {
+        if (settings == null || settings.isEmpty()) {
             return;
         }
-        settingMap.put(key, object);
+        Map<String, ConfigValue> changes = new LinkedHashMap<>();
+        for (Map.Entry<String, ?> entry : settings.entrySet()) {
+            if (entry.getKey() != null) {
+                checkKey(entry.getKey());
+                changes.put(entry.getKey(), entry.getValue() == null ? null : ConfigValue.of(entry.getValue()));
+            }
+        }
+        apply(changes, false);
+    }
+
+    /**
+     * Starts counting reads in the given metrics, or stops counting when passed null. Every getter, {@link #isSet}
+     * and every handle count a read of their key; a key that is not set counts as a fallback, and a value that
+     * cannot be read as the requested type counts as a mismatch.
+     *
+     * @param metrics metrics to count reads in
+     */
+    public void setMetrics(ConfigMetrics metrics) {
+        this.metrics = metrics;
     }
 
+    public ConfigMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the generation of the settings. It changes every time a setting changes, so values derived from the
+     * settings can be cached alongside the generation they were computed from and recomputed once it moves on.
+     *
+     * @return current generation
+     */
+    public long getGeneration() {
+        long generation = 0;
+        for (ConfigShard shard : shards.shards()) {
+            generation += shard.snapshot().generation();
+        }
+        return generation;
+    }
+
+    /**
+     * Gets the generation of the namespace a key belongs to. Unlike {@link #getGeneration()}, it only changes when a
+     * setting of that namespace changes, so values derived from one file are not recomputed when another file is
+     * reloaded.
+     *
+     * @param key any key of the namespace, such as {@code "mobs.zombie.health"} for {@code mobs}
+     * @return current generation of the namespace, or 0 if nothing was ever set in it
+     */
+    public long getGeneration(String key) {
+        ConfigShard shard = key == null ? null : shards.route(key);
+        return shard == null ? 0 : shard.snapshot().generation();
+    }
+
+    /**
+     * Gets a read-only live view of every setting. The view is not a copy, so it reflects later changes and costs
+     * nothing to obtain; copy it if a stable map is needed.
+     *
+     * @return read-only view of the settings
+     */
     public Map<String, Object> getSettingMap() {
-        return new HashMap<>(settingMap);
+        return settingView;
+    }
+
+    /**
+     * Gets a read-only live view of every set key.
+     *
+     * @return read-only view of the keys
+     */
+    public Set<String> getKeys() {
+        return settingView.keySet();
+    }
+
+    public int size() {
+        int size = 0;
+        for (ConfigShard shard : shards.shards()) {
+            size += shard.size();
+        }
+        return size;
     }
 
     public boolean isSet(String key) {
-        return getSettingMap().containsKey(key);
+        ConfigValue val = lookup(key);
+        ConfigMetrics m = metrics;
+        if (m != null) {
+            m.read(key, val != null, true);
+        }
+        return val != null;
+    }
+
+    /**
+     * Calls the action for every set key without copying the settings.
+     *
+     * @param action action to call with each key
+     */
+    public void forEachKey(Consumer<? super String> action) {
+        for (ConfigShard shard : shards.shards()) {
+            shard.forEachKey(action);
+        }
+    }
+
+    /**
+     * Calls the action for every setting without copying the settings, ordered path by path.
+     *
+     * @param action action to call with each key and value
+     * @see #forEachWithPrefix(String, BiConsumer)
+     */
+    public void forEach(BiConsumer<? super String, Object> action) {
+        forEachWithPrefix("", action);
+    }
+
+    /**
+     * Calls the action for every setting whose key starts with the prefix, such as {@code "mobs.zombie."}. Settings
+     * are visited path by path: a path comes before the keys under it, and the paths under a parent are sorted by
+     * name. Only the settings under the prefix are looked at, so the cost depends on how many there are rather than
+     * on the number of settings overall.
+     *
+     * @param prefix prefix of the keys to visit
+     * @param action action to call with each key and value
+     */
+    public void forEachWithPrefix(String prefix, BiConsumer<? super String, Object> action) {
+        if (prefix.indexOf('.') >= 0) {
+            ConfigShard shard = shards.route(prefix);
+            if (shard != null) {
+                shard.forEach(prefix, action);
+            }
+            return;
+        }
+        ConfigShard[] sorted = shards.sorted();
+        List<Map.Entry<String, Object>> top = new ArrayList<>();
+        if (sorted.length > 0 && sorted[0].namespace().isEmpty()) {
+            sorted[0].forEach(prefix, (key, value) -> top.add(new AbstractMap.SimpleImmutableEntry<>(key, value)));
+        }
+        int next = 0;
+        for (ConfigShard shard : sorted) {
+            if (shard.namespace().isEmpty() || !shard.namespace().startsWith(prefix)) {
+                continue;
+            }
+            // keys without a dot sort in between the namespaces
+            while (next < top.size() && top.get(next).getKey().compareTo(shard.namespace()) <= 0) {
+                action.accept(top.get(next).getKey(), top.get(next).getValue());
+                next++;
+            }
+            shard.forEach(prefix, action);
+        }
+        for (; next < top.size(); next++) {
+            action.accept(top.get(next).getKey(), top.get(next).getValue());
+        }
+    }
+
+    /**
+     * Gets the names of the paths directly under a path that have settings, in order. With settings
+     * {@code mobs.zombie.health} and {@code mobs.skeleton.health}, the children of {@code "mobs"} are
+     * {@code skeleton} and {@code zombie}. The children of the empty path are the namespaces and the keys without a
+     * dot.
+     *
+     * @param path path to list
+     * @return unmodifiable set of the names of the children
+     */
+    public Set<String> getChildren(String path) {
+        if (path == null || path.isEmpty()) {
+            Set<String> top = new TreeSet<>();
+            for (ConfigShard shard : shards.shards()) {
+                if (shard.namespace().isEmpty()) {
+                    shard.children("", top);
+                } else if (shard.size() > 0) {
+                    top.add(shard.namespace());
+                }
+            }
+            return Collections.unmodifiableSet(top);
+        }
+        Set<String> children = new LinkedHashSet<>();
+        ConfigShard shard = shards.route(path + ".");
+        if (shard != null) {
+            shard.children(path, children);
+        }
+        return Collections.unmodifiableSet(children);
+    }
+
+    /**
+     * Gets a live view of the settings under a path, read with keys relative to it. The view holds nothing but the
+     * path, so creating one is cheap and it always shows the current settings.
+     *
+     * @param path path of the subtree, such as {@code "mobs.zombie"}
+     * @return view of the subtree
+     */
+    public ConfigSubtree subtree(String path) {
+        return new ConfigSubtree(this, path == null ? "" : path);
     }
 
     public Object get(String key, Object fallback) {
-        return settingMap == null || !settingMap.containsKey(key) ? fallback : settingMap.get(key);
+        ConfigValue val = lookup(key);
+        ConfigMetrics m = metrics;
+        if (m != null) {
+            m.read(key, val != null, true);
+        }
+        return val == null ? fallback : val.raw();
     }
 
     public String getString(String key) {
@@ -91,34 +690,85 @@ public final class MasterConfiguration {
     }
 
     public String getString(String key, String fallback) {
-        if (settingMap == null || !settingMap.containsKey(key)) {
-            return fallback;
-        }
-        Object val = settingMap.get(key);
-        if (val instanceof String) {
-            return (String) val;
+        ConfigValue val = lookup(key);
+        ConfigMetrics m = metrics;
+        if (m != null) {
+            m.read(key, val != null, val != null && ConfigValue.isScalar(val.raw()));
         }
-        return String.valueOf(val);
+        return val == null ? fallback : val.asString();
     }
 
     public List<String> getStringList(String key) {
-        return getStringList(key, new ArrayList<String>());
+        return getStringList(key, Collections.<String>emptyList());
     }
 
+    /**
+     * Gets a list setting as strings. The list is converted once and the same unmodifiable list is returned until
+     * the setting changes.
+     *
+     * @param key      key to read
+     * @param fallback value returned if the key is not set or is not a list
+     * @return unmodifiable list of the string form of each element, or the fallback
+     */
     public List<String> getStringList(String key, List<String> fallback) {
-        if (settingMap == null || !settingMap.containsKey(key)) {
-            return fallback;
-        }
-        Object val = settingMap.get(key);
-        if (!(val instanceof List)) {
-            return fallback;
-        }
-        List<?> valList = (List) val;
-        List<String> ret = new ArrayList<>();
-        for (Object o : valList) {
-            ret.add(String.valueOf(o));
+        return get(key, ConfigConverters.STRING_LIST, fallback);
+    }
+
+    /**
+     * Gets a list setting as a set of strings, for settings such as blacklists that are checked with
+     * {@link Set#contains(Object)}. The set is built once and reused until the setting changes.
+     *
+     * @param key key to read
+     * @return unmodifiable set of the string form of each element, or an empty set
+     */
+    public Set<String> getStringSet(String key) {
+        return get(key, ConfigConverters.STRING_SET, Collections.<String>emptySet());
+    }
+
+    /**
+     * Gets a setting as an enum constant, matching names ignoring case. The constant is looked up once and reused
+     * until the setting changes.
+     *
+     * @param key      key to read
+     * @param type     enum type
+     * @param fallback value returned if the key is not set or names no constant
+     * @param <E>      enum type
+     * @return enum constant, or the fallback
+     */
+    public <E extends Enum<E>> E getEnum(String key, Class<E> type, E fallback) {
+        return get(key, ConfigConverters.forEnum(type), fallback);
+    }
+
+    /**
+     * Gets a setting as a range of numbers, such as {@code 5-10}.
+     *
+     * @param key      key to read
+     * @param fallback value returned if the key is not set or is not a range
+     * @return range, or the fallback
+     * @see ConfigConverters#NUMBER_RANGE
+     */
+    public NumberRange getRange(String key, NumberRange fallback) {
+        return get(key, ConfigConverters.NUMBER_RANGE, fallback);
+    }
+
+    /**
+     * Gets a setting converted by the converter. The result is cached with the setting, so the converter only runs
+     * again once the setting has changed or been reloaded.
+     *
+     * @param key       key to read
+     * @param converter converter to use, ideally kept in a constant
+     * @param fallback  value returned if the key is not set or cannot be converted
+     * @param <T>       type converted to
+     * @return converted value, or the fallback
+     */
+    public <T> T get(String key, ConfigConverter<T> converter, T fallback) {
+        ConfigValue val = lookup(key);
+        T converted = val == null ? null : val.convert(converter);
+        ConfigMetrics m = metrics;
+        if (m != null) {
+            m.read(key, val != null, converted != null);
         }
-        return ret;
+        return converted == null ? fallback : converted;
     }
 
     public boolean getBoolean(String key) {
@@ -126,17 +776,12 @@ public final class MasterConfiguration {
     }
 
     public boolean getBoolean(String key, boolean fallback) {
-        if (settingMap == null || !settingMap.containsKey(key)) {
-            return fallback;
-        }
-        Object val = settingMap.get(key);
-        if (val instanceof Boolean) {
-            return (Boolean) val;
-        }
-        if (val instanceof String) {
-            return Boolean.parseBoolean((String) val);
+        ConfigValue val = lookup(key);
+        ConfigMetrics m = metrics;
+        if (m != null) {
+            m.read(key, val != null, val != null && val.isBoolean());
         }
-        return fallback;
+        return val == null ? fallback : val.asBoolean(fallback);
     }
 
     public int getInt(String key) {
@@ -144,17 +789,12 @@ public final class MasterConfiguration {
     }
 
     public int getInt(String key, int fallback) {
-        if (settingMap == null || !settingMap.containsKey(key)) {
-            return fallback;
+        ConfigValue val = lookup(key);
+        ConfigMetrics m = metrics;
+        if (m != null) {
+            m.read(key, val != null, val != null && val.isInt());
         }
-        Object val = settingMap.get(key);
-        if (val instanceof Integer) {
-            return (Integer) val;
-        }
-        if (val instanceof String) {
-            return NumberUtils.toInt((String) val, fallback);
-        }
-        return fallback;
+        return val == null ? fallback : val.asInt(fallback);
     }
 
     public long getLong(String key) {
@@ -162,17 +802,12 @@ public final class MasterConfiguration {
     }
 
     public long getLong(String key, long fallback) {
-        if (settingMap == null || !settingMap.containsKey(key)) {
-            return fallback;
-        }
-        Object val = settingMap.get(key);
-        if (val instanceof Long) {
-            return (Long) val;
+        ConfigValue val = lookup(key);
+        ConfigMetrics m = metrics;
+        if (m != null) {
+            m.read(key, val != null, val != null && val.isLong());
         }
-        if (val instanceof String) {
-            return NumberUtils.toLong((String) val, fallback);
-        }
-        return fallback;
+        return val == null ? fallback : val.asLong(fallback);
     }
 
     public double getDouble(String key) {
@@ -180,17 +815,402 @@ public final class MasterConfiguration {
     }
 
     public double getDouble(String key, double fallback) {
-        if (settingMap == null || !settingMap.containsKey(key)) {
-            return fallback;
+        ConfigValue val = lookup(key);
+        ConfigMetrics m = metrics;
+        if (m != null) {
+            m.read(key, val != null, val != null && val.isDouble());
+        }
+        return val == null ? fallback : val.asDouble(fallback);
+    }
+
+    /**
+     * Creates a handle for a boolean setting. The key is resolved once, so reads through the handle skip the map
+     * lookup entirely. Handles stay valid across loads and return the fallback while the key is not set.
+     *
+     * @param key      key to read
+     * @param fallback value returned while the key is not set
+     * @return handle for the key
+     * @throws IllegalArgumentException if the key is empty or has an empty path segment
+     */
+    public BooleanKey booleanKey(String key, boolean fallback) {
+        return new BooleanKey(this, key, fallback);
+    }
+
+    /**
+     * Creates a handle for an int setting.
+     *
+     * @param key      key to read
+     * @param fallback value returned while the key is not set
+     * @return handle for the key
+     * @see #booleanKey(String, boolean)
+     */
+    public IntKey intKey(String key, int fallback) {
+        return new IntKey(this, key, fallback);
+    }
+
+    /**
+     * Creates a handle for a long setting.
+     *
+     * @param key      key to read
+     * @param fallback value returned while the key is not set
+     * @return handle for the key
+     * @see #booleanKey(String, boolean)
+     */
+    public LongKey longKey(String key, long fallback) {
+        return new LongKey(this, key, fallback);
+    }
+
+    /**
+     * Creates a handle for a double setting.
+     *
+     * @param key      key to read
+     * @param fallback value returned while the key is not set
+     * @return handle for the key
+     * @see #booleanKey(String, boolean)
+     */
+    public DoubleKey doubleKey(String key, double fallback) {
+        return new DoubleKey(this, key, fallback);
+    }
+
+    /**
+     * Creates a handle for a string setting.
+     *
+     * @param key      key to read
+     * @param fallback value returned while the key is not set
+     * @return handle for the key
+     * @see #booleanKey(String, boolean)
+     */
+    public StringKey stringKey(String key, String fallback) {
+        return new StringKey(this, key, fallback);
+    }
+
+    /**
+     * Creates a handle for a converted setting. Conversions are cached with the setting, as with
+     * {@link #get(String, ConfigConverter, Object)}.
+     *
+     * @param key       key to read
+     * @param converter converter to use
+     * @param fallback  value returned while the key is not set or cannot be converted
+     * @param <T>       type converted to
+     * @return handle for the key
+     * @see #booleanKey(String, boolean)
+     */
+    public <T> ConvertedKey<T> convertedKey(String key, ConfigConverter<T> converter, T fallback) {
+        return new ConvertedKey<>(this, key, converter, fallback);
+    }
+
+    /**
+     * Creates a binding that fills the {@link ConfigPath} fields of objects of the type from the settings under the
+     * prefix given by the {@link ConfigPath} of the type, or from full keys if the type has none.
+     *
+     * @param type type of the objects to fill
+     * @param <T>  type of the objects to fill
+     * @return binding for the type
+     * @see #binding(Class, String)
+     */
+    public <T> ConfigBinding<T> binding(Class<T> type) {
+        return new ConfigBinding<>(this, type, null);
+    }
+
+    /**
+     * Creates a binding that fills the {@link ConfigPath} fields of objects of the type from the settings under the
+     * prefix, such as {@code "mobs.zombie"}. The fields of a type are inspected once, and the keys of a binding are
+     * resolved when it is created, so keep bindings around rather than creating one for each update.
+     *
+     * @param type   type of the objects to fill
+     * @param prefix prefix of the settings
+     * @param <T>    type of the objects to fill
+     * @return binding for the type
+     * @throws IllegalArgumentException if a field has a type that cannot be bound, or is static or final
+     */
+    public <T> ConfigBinding<T> binding(Class<T> type, String prefix) {
+        return new ConfigBinding<>(this, type, prefix == null ? "" : prefix);
+    }
+
+    /**
+     * Gets the shard of the namespace of a key, creating it if the namespace has never been used.
+     *
+     * @param key key to route
+     * @return shard of the key
+     */
+    ConfigShard shardFor(String key) {
+        ConfigShard shard = shards.route(key);
+        if (shard != null) {
+            return shard;
+        }
+        synchronized (shardLock) {
+            shard = shards.route(key);
+            if (shard == null) {
+                shard = new ConfigShard(ShardTable.namespaceOf(key));
+                shards = shards.with(shard);
+            }
+            return shard;
+        }
+    }
+
+    private ConfigValue lookup(String key) {
+        if (key == null) {
+            return null;
+        }
+        ConfigShard shard = shards.route(key);
+        return shard == null ? null : shard.lookup(key);
+    }
+
+    private ConfigChanges apply(Map<String, ConfigValue> updates, boolean replace) {
+        ConfigChanges changes = commit(updates, replace);
+        dispatcher.drain();
+        return changes;
+    }
+
+    /**
+     * Commits settings loaded again from the configurations, removing the keys they owned but no longer have. Every
+     * namespace that received settings or held settings of the configurations is committed on its own.
+     */
+    private ConfigChanges commitReloaded(Collection<SmartConfiguration> configurations,
+                                        Map<String, ConfigValue> loaded) {
+        Map<ConfigShard, Map<String, ConfigValue>> routed = route(loaded);
+        for (ConfigShard shard : shards.shards()) {
+            if (!routed.containsKey(shard)) {
+                for (SmartConfiguration configuration : configurations) {
+                    if (shard.hasSource(configuration)) {
+                        routed.put(shard, new LinkedHashMap<String, ConfigValue>());
+                        break;
+                    }
+                }
+            }
         }
-        Object val = settingMap.get(key);
-        if (val instanceof Double) {
-            return (Double) val;
+        return commitInOrder(routed, (shard, updates) -> shard.commitReloaded(configurations, updates));
+    }
+
+    /**
+     * Publishes the next generation of every namespace the updates touch. Null values remove their keys, values
+     * equal to the current ones are skipped, and with {@code replace} every key missing from the updates is removed
+     * as well.
+     */
+    private ConfigChanges commit(Map<String, ConfigValue> updates, boolean replace) {
+        Map<ConfigShard, Map<String, ConfigValue>> routed = route(updates);
+        if (replace) {
+            for (ConfigShard shard : shards.shards()) {
+                if (!routed.containsKey(shard)) {
+                    routed.put(shard, Collections.<String, ConfigValue>emptyMap());
+                }
+            }
         }
-        if (val instanceof String) {
-            return NumberUtils.toDouble((String) val, fallback);
+        return commitInOrder(routed, (shard, shardUpdates) -> shard.commit(shardUpdates, replace));
+    }
+
+    /**
+     * Commits every routed namespace while holding the locks of all of them, taken in namespace order so that two
+     * commits cannot deadlock, and queues the combined changes before letting go. Changes are therefore queued in
+     * the order every namespace committed them, and {@link ChangeDispatcher#drain()} delivers them in that order.
+     */
+    private ConfigChanges commitInOrder(Map<ConfigShard, Map<String, ConfigValue>> routed,
+                                        BiFunction<ConfigShard, Map<String, ConfigValue>, ConfigChanges> committer) {
+        List<ConfigShard> locked = new ArrayList<>(routed.keySet());
+        if (locked.size() > 1) {
+            locked.sort(Comparator.comparing(ConfigShard::namespace));
         }
-        return fallback;
+        return commitInOrder(routed, committer, locked, 0, new ArrayList<ConfigChanges>(locked.size()));
+    }
+
+    private ConfigChanges commitInOrder(Map<ConfigShard, Map<String, ConfigValue>> routed,
+                                        BiFunction<ConfigShard, Map<String, ConfigValue>, ConfigChanges> committer,
+                                        List<ConfigShard> locked, int index, List<ConfigChanges> committed) {
+        if (index == locked.size()) {
+            ConfigChanges changes = combine(committed);
+            dispatcher.publish(changes);
+            return changes;
+        }
+        ConfigShard shard = locked.get(index);
+        synchronized (shard) {
+            committed.add(committer.apply(shard, routed.get(shard)));
+            return commitInOrder(routed, committer, locked, index + 1, committed);
+        }
+    }
+
+    /**
+     * Splits updates by namespace. Removals of keys in namespaces that do not exist are dropped.
+     *
+     * @throws IllegalStateException if a key belongs to a mounted namespace, before anything is committed
+     */
+    private Map<ConfigShard, Map<String, ConfigValue>> route(Map<String, ConfigValue> updates) {
+        Map<ConfigShard, Map<String, ConfigValue>> routed = new LinkedHashMap<>();
+        ConfigShard last = null;
+        Map<String, ConfigValue> lastUpdates = null;
+        for (Map.Entry<String, ConfigValue> entry : updates.entrySet()) {
+            String key = entry.getKey();
+            ConfigShard shard = entry.getValue() == null ? shards.route(key) : shardFor(key);
+            if (shard == null) {
+                continue;
+            }
+            if (shard.store() != null) {
+                throw new IllegalStateException("cannot change " + key + ", namespace " + shard.namespace()
+                        + " is mounted from " + shard.store().getFile());
+            }
+            if (shard != last) {
+                last = shard;
+                lastUpdates = routed.computeIfAbsent(shard, k -> new LinkedHashMap<>());
+            }
+            lastUpdates.put(key, entry.getValue());
+        }
+        return routed;
+    }
+
+    /**
+     * Rejects keys no configuration file can produce. An empty key would stand for the root of its namespace, and
+     * could be set but never read back.
+     *
+     * @throws IllegalArgumentException if the key is empty or has an empty path segment
+     */
+    static void checkKey(String key) {
+        if (key.isEmpty() || key.charAt(0) == '.' || key.charAt(key.length() - 1) == '.' || key.contains("..")) {
+            throw new IllegalArgumentException("key cannot be empty or have empty path segments: '" + key + "'");
+        }
+    }
+
+    private ConfigChanges combine(List<ConfigChanges> committed) {
+        if (committed.isEmpty()) {
+            return ConfigChanges.none(getGeneration());
+        }
+        Map<String, ConfigChange> changes = new LinkedHashMap<>();
+        for (ConfigChanges part : committed) {
+            for (ConfigChange change : part) {
+                changes.put(change.getKey(), change);
+            }
+        }
+        return new ConfigChanges(getGeneration(), changes);
+    }
+
+    /**
+     * Flattens the configurations, spreading them over the common pool when there is more than one.
+     */
+    private static Map<String, ConfigValue> flatten(SmartConfiguration... configurations) {
+        if (configurations.length == 1) {
+            return flatten(configurations[0]);
+        }
+        try {
+            return flattenAll(ForkJoinPool.commonPool(), sources(configurations)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static CompletableFuture<Map<String, ConfigValue>> flattenAll(
+            Executor executor, List<? extends Supplier<? extends SmartConfiguration>> sources) {
+        List<CompletableFuture<Map<String, ConfigValue>>> parts = new ArrayList<>();
+        for (Supplier<? extends SmartConfiguration> source : sources) {
+            parts.add(CompletableFuture.supplyAsync(() -> flatten(source.get()), executor));
+        }
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[parts.size()])).thenApply(v -> {
+            Map<String, ConfigValue> merged = new LinkedHashMap<>();
+            for (CompletableFuture<Map<String, ConfigValue>> part : parts) {
+                merged.putAll(part.join());
+            }
+            return merged;
+        });
+    }
+
+    private static List<Supplier<SmartConfiguration>> sources(SmartConfiguration... configurations) {
+        List<Supplier<SmartConfiguration>> sources = new ArrayList<>();
+        for (SmartConfiguration configuration : configurations) {
+            sources.add(() -> configuration);
+        }
+        return sources;
+    }
+
+    static Map<String, ConfigValue> flatten(SmartConfiguration yc) {
+        ConfigMetrics metrics = yc instanceof SmartYamlConfiguration ? ((SmartYamlConfiguration) yc).getMetrics() :
+                null;
+        long start = metrics == null ? 0 : System.nanoTime();
+        String name = ConfigFormat.stripExtension(yc.getFileName());
+        Map<String, ConfigValue> flattened = null;
+        if (yc instanceof SmartYamlConfiguration && ((SmartYamlConfiguration) yc).isDeferred()) {
+            flattened = ((SmartYamlConfiguration) yc).flattenFile(name + ".");
+            if (flattened == null) {
+                yc.load();
+            }
+        }
+        if (flattened == null) {
+            flattened = new LinkedHashMap<>();
+            for (String key : yc.getKeys(true)) {
+                Object value = yc.get(key);
+                if (value == null || value instanceof ConfigurationSection) {
+                    continue;
+                }
+                flattened.put(name + "." + key, ConfigValue.isScalar(value) ? ConfigValue.ofScalar(value, yc) :
+                        ConfigValue.of(value, yc));
+            }
+        }
+        if (metrics != null) {
+            metrics.time(ConfigMetrics.Operation.FLATTEN, yc.getFileName(), System.nanoTime() - start);
+        }
+        return flattened;
+    }
+
+    private final class SettingView extends AbstractMap<String, Object> {
+
+        private final Set<Entry<String, Object>> entries = new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new SettingIterator();
+            }
+
+            @Override
+            public int size() {
+                return MasterConfiguration.this.size();
+            }
+        };
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return entries;
+        }
+
+        @Override
+        public int size() {
+            return MasterConfiguration.this.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && isSet((String) key);
+        }
+
+        @Override
+        public Object get(Object key) {
+            return key instanceof String ? MasterConfiguration.this.get((String) key, null) : null;
+        }
+
+    }
+
+    private final class SettingIterator implements Iterator<Map.Entry<String, Object>> {
+
+        private final ConfigShard[] visited = shards.shards();
+        private int shard;
+        private Iterator<Map.Entry<String, Object>> current = Collections.emptyIterator();
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                if (shard >= visited.length) {
+                    return false;
+                }
+                current = visited[shard++].iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public Map.Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
     }
 
 }
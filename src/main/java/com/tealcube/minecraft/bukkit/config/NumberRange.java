@@ -0,0 +1,73 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+/**
+ * An immutable range of numbers with inclusive bounds, read from settings such as {@code 5-10}, {@code -2..2}, a
+ * single number or a list of two numbers.
+ */
+public final class NumberRange {
+
+    private final double min;
+    private final double max;
+
+    public NumberRange(double min, double max) {
+        this.min = Math.min(min, max);
+        this.max = Math.max(min, max);
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public boolean contains(double value) {
+        return value >= min && value <= max;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof NumberRange)) {
+            return false;
+        }
+        NumberRange that = (NumberRange) o;
+        return Double.compare(that.min, min) == 0 && Double.compare(that.max, max) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Double.hashCode(min) + Double.hashCode(max);
+    }
+
+    @Override
+    public String toString() {
+        return min + ".." + max;
+    }
+
+}
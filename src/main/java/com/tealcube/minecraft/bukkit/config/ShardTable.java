@@ -0,0 +1,134 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * An immutable table from namespaces to the {@link ConfigShard}s of a {@link MasterConfiguration}. The namespace of
+ * a key is everything before its first dot, which for loaded files is the file name; keys without a dot share the
+ * root namespace {@code ""}. Finding the shard of a key hashes its namespace in place, so routing a read does not
+ * allocate.
+ */
+final class ShardTable {
+
+    static final ShardTable EMPTY = new ShardTable(new ConfigShard[0]);
+
+    private final ConfigShard[] shards;
+    private final ConfigShard[] sorted;
+    private final ConfigShard[] table;
+    private final int mask;
+
+    private ShardTable(ConfigShard[] shards) {
+        this.shards = shards;
+        sorted = shards.clone();
+        Arrays.sort(sorted, Comparator.comparing(ConfigShard::namespace));
+        int capacity = 4;
+        while (capacity < shards.length * 2) {
+            capacity <<= 1;
+        }
+        table = new ConfigShard[capacity];
+        mask = capacity - 1;
+        for (ConfigShard shard : shards) {
+            int i = spread(shard.namespace().hashCode()) & mask;
+            while (table[i] != null) {
+                i = (i + 1) & mask;
+            }
+            table[i] = shard;
+        }
+    }
+
+    /**
+     * Gets the namespace of a key.
+     *
+     * @param key key to check
+     * @return everything before the first dot, or an empty string if there is none
+     */
+    static String namespaceOf(String key) {
+        int end = key.indexOf('.');
+        return end < 0 ? "" : key.substring(0, end);
+    }
+
+    /**
+     * Gets the shard holding a key.
+     *
+     * @param key key to route
+     * @return shard of the namespace of the key, or null if there is none yet
+     */
+    ConfigShard route(String key) {
+        int end = key.indexOf('.');
+        if (end < 0) {
+            end = 0;
+        }
+        int hash = 0;
+        for (int i = 0; i < end; i++) {
+            hash = 31 * hash + key.charAt(i);
+        }
+        int i = spread(hash) & mask;
+        ConfigShard shard;
+        while ((shard = table[i]) != null) {
+            String namespace = shard.namespace();
+            if (namespace.length() == end && key.regionMatches(0, namespace, 0, end)) {
+                return shard;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the shards in the order they were created. The array is shared and must not be modified.
+     *
+     * @return every shard
+     */
+    ConfigShard[] shards() {
+        return shards;
+    }
+
+    /**
+     * Gets the shards sorted by namespace, the root namespace first. The array is shared and must not be modified.
+     *
+     * @return every shard
+     */
+    ConfigShard[] sorted() {
+        return sorted;
+    }
+
+    /**
+     * Returns a table that also routes to the shard.
+     *
+     * @param shard shard of a namespace that is not in this table yet
+     * @return extended table
+     */
+    ShardTable with(ConfigShard shard) {
+        ConfigShard[] grown = Arrays.copyOf(shards, shards.length + 1);
+        grown[shards.length] = shard;
+        return new ShardTable(grown);
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+}
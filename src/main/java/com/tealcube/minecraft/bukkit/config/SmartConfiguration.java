@@ -25,6 +25,8 @@ package com.tealcube.minecraft.bukkit.config;
 import org.bukkit.configuration.Configuration;
 
 import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public interface SmartConfiguration extends Configuration {
 
@@ -36,4 +38,42 @@ public interface SmartConfiguration extends Configuration {
 
     String getFileName();
 
+    /**
+     * Runs {@link #load()} on the executor.
+     *
+     * @param executor executor to load on
+     * @return future completed once loading has finished
+     */
+    default CompletableFuture<Void> loadAsync(Executor executor) {
+        return CompletableFuture.runAsync(this::load, executor);
+    }
+
+    /**
+     * Runs {@link #load()} on the {@link ConfigExecutors#getDefault() default executor}.
+     *
+     * @return future completed once loading has finished
+     */
+    default CompletableFuture<Void> loadAsync() {
+        return loadAsync(ConfigExecutors.getDefault());
+    }
+
+    /**
+     * Runs {@link #save()} on the executor.
+     *
+     * @param executor executor to save on
+     * @return future completed once saving has finished
+     */
+    default CompletableFuture<Void> saveAsync(Executor executor) {
+        return CompletableFuture.runAsync(this::save, executor);
+    }
+
+    /**
+     * Runs {@link #save()} on the {@link ConfigExecutors#getDefault() default executor}.
+     *
+     * @return future completed once saving has finished
+     */
+    default CompletableFuture<Void> saveAsync() {
+        return saveAsync(ConfigExecutors.getDefault());
+    }
+
 }
@@ -0,0 +1,95 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * A {@link SmartYamlConfiguration} kept in a JSON file. The root of the file is an object, and nested objects become
+ * sections the same way YAML mappings do, so the file reads like its YAML equivalent through every getter and
+ * through {@link MasterConfiguration}. JSON parses far faster than YAML, which suits large machine-generated files.
+ * JSON has no comments, so the header is not saved.
+ */
+public class SmartJsonConfiguration extends SmartYamlConfiguration {
+
+    /**
+     * Instantiates a new SmartJsonConfiguration with a selected {@link java.io.File} to load/save from/to and
+     * automatically loads the file.
+     *
+     * @param file file to load/save from/to
+     */
+    public SmartJsonConfiguration(File file) {
+        this(file, '.');
+    }
+
+    /**
+     * Instantiates a new SmartJsonConfiguration with a selected {@link java.io.File} to load/save from/to and
+     * automatically loads the file.
+     *
+     * @param file      file to load/save from/to
+     * @param separator separator char
+     */
+    public SmartJsonConfiguration(File file, char separator) {
+        super();
+        setFile(file);
+        options().pathSeparator(separator);
+        load();
+    }
+
+    public SmartJsonConfiguration() {
+        super();
+    }
+
+    /**
+     * Replaces the contents of this configuration with the given JSON. If the JSON cannot be parsed, the previous
+     * contents are kept.
+     *
+     * @param contents JSON to load
+     * @throws InvalidConfigurationException if the JSON cannot be parsed or its root is not an object
+     */
+    @Override
+    public void loadFromString(String contents) throws InvalidConfigurationException {
+        Map<String, Object> root;
+        try {
+            root = JsonFormat.parse(contents);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidConfigurationException(e.getMessage(), e);
+        }
+        map.clear();
+        convertMapsToSections(root, this);
+    }
+
+    @Override
+    public String saveToString() {
+        return JsonFormat.write(this);
+    }
+
+    @Override
+    Map<String, ConfigValue> flattenFile(String prefix) {
+        return JsonFormat.flatten(getFile(), prefix, options().pathSeparator(), this);
+    }
+
+}
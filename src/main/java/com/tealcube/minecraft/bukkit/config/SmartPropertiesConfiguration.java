@@ -0,0 +1,241 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * A {@link SmartYamlConfiguration} kept in a {@code .properties} file. Keys are split into sections at the path
+ * separator, so {@code shop.price=10} reads the same as its YAML equivalent. Values that are exactly a boolean, an
+ * integer or a decimal, written the way Java writes them, are read as that type, and everything else as a string,
+ * so saving writes back the same text. Lists and other values are saved in their string form. The header is saved as
+ * comment lines at the top of the file.
+ */
+public class SmartPropertiesConfiguration extends SmartYamlConfiguration {
+
+    /**
+     * Instantiates a new SmartPropertiesConfiguration with a selected {@link java.io.File} to load/save from/to and
+     * automatically loads the file.
+     *
+     * @param file file to load/save from/to
+     */
+    public SmartPropertiesConfiguration(File file) {
+        this(file, '.');
+    }
+
+    /**
+     * Instantiates a new SmartPropertiesConfiguration with a selected {@link java.io.File} to load/save from/to and
+     * automatically loads the file.
+     *
+     * @param file      file to load/save from/to
+     * @param separator separator char
+     */
+    public SmartPropertiesConfiguration(File file, char separator) {
+        super();
+        setFile(file);
+        options().pathSeparator(separator);
+        load();
+    }
+
+    public SmartPropertiesConfiguration() {
+        super();
+    }
+
+    /**
+     * Replaces the contents of this configuration with the given properties. If they cannot be parsed, the previous
+     * contents are kept.
+     *
+     * @param contents properties to load
+     * @throws InvalidConfigurationException if the properties cannot be parsed
+     */
+    @Override
+    public void loadFromString(String contents) throws InvalidConfigurationException {
+        Map<String, String> entries;
+        try {
+            entries = parse(contents);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidConfigurationException(e.getMessage(), e);
+        }
+        map.clear();
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            set(entry.getKey(), scalar(entry.getValue()));
+        }
+        String header = parseHeader(contents);
+        if (header.length() > 0) {
+            options().header(header);
+        }
+    }
+
+    @Override
+    public String saveToString() {
+        StringBuilder builder = new StringBuilder(buildHeader());
+        for (String key : getKeys(true)) {
+            Object value = get(key);
+            if (value == null || value instanceof ConfigurationSection) {
+                continue;
+            }
+            escape(builder, key, true);
+            builder.append('=');
+            escape(builder, String.valueOf(value), false);
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Reads the file straight into flattened entries. Files where a key is also the start of a longer key, or that
+     * have empty key segments, are loaded the usual way, since sections would replace each other there.
+     */
+    @Override
+    Map<String, ConfigValue> flattenFile(String prefix) {
+        Map<String, String> entries;
+        try {
+            entries = parse(new String(Files.readAllBytes(getFile().toPath()), StandardCharsets.UTF_8));
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+        char separator = options().pathSeparator();
+        Map<String, ConfigValue> flattened = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            String key = entry.getKey();
+            int start = 0;
+            int index;
+            while ((index = key.indexOf(separator, start)) >= 0) {
+                if (index == start || entries.containsKey(key.substring(0, index))) {
+                    return null;
+                }
+                start = index + 1;
+            }
+            if (start == key.length()) {
+                return null;
+            }
+            flattened.put(prefix + key, ConfigValue.ofScalar(scalar(entry.getValue()), this));
+        }
+        return flattened;
+    }
+
+    /**
+     * Parses properties in the order their keys first appear. A key given more than once keeps its last value.
+     */
+    private static Map<String, String> parse(String contents) throws IOException {
+        OrderedProperties properties = new OrderedProperties();
+        properties.load(new StringReader(contents));
+        return properties.entries;
+    }
+
+    private static Object scalar(String value) {
+        if (value.equals("true")) {
+            return Boolean.TRUE;
+        }
+        if (value.equals("false")) {
+            return Boolean.FALSE;
+        }
+        int length = value.length();
+        if (length == 0 || length > 24) {
+            return value;
+        }
+        char first = value.charAt(0);
+        if ((first < '0' || first > '9') && first != '-') {
+            return value;
+        }
+        try {
+            if (value.indexOf('.') < 0) {
+                long parsed = Long.parseLong(value);
+                if (!Long.toString(parsed).equals(value)) {
+                    return value;
+                }
+                return parsed == (int) parsed ? (Object) (int) parsed : (Object) parsed;
+            }
+            double parsed = Double.parseDouble(value);
+            return Double.toString(parsed).equals(value) ? (Object) parsed : value;
+        } catch (NumberFormatException e) {
+            return value;
+        }
+    }
+
+    private static void escape(StringBuilder builder, String text, boolean key) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case ' ':
+                    if (key || i == 0) {
+                        builder.append('\\');
+                    }
+                    builder.append(' ');
+                    break;
+                case '\\':
+                case '=':
+                case ':':
+                case '#':
+                case '!':
+                    builder.append('\\').append(c);
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\f':
+                    builder.append("\\f");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+            }
+        }
+    }
+
+    /**
+     * Collects what {@link Properties#load(java.io.Reader)} reads into an ordered map instead of the table.
+     */
+    private static final class OrderedProperties extends Properties {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Map<String, String> entries = new LinkedHashMap<>();
+
+        @Override
+        public synchronized Object put(Object key, Object value) {
+            return entries.put((String) key, (String) value);
+        }
+
+    }
+
+}
@@ -23,20 +23,62 @@
 package com.tealcube.minecraft.bukkit.config;
 
 import org.bukkit.configuration.Configuration;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.YamlConfiguration;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * An extension of {@link org.bukkit.configuration.file.YamlConfiguration} that can load and save itself.
  */
 public class SmartYamlConfiguration extends YamlConfiguration implements SmartConfiguration {
 
+    private static final Logger LOGGER = Logger.getLogger(SmartYamlConfiguration.class.getName());
+    private static final Set<PosixFilePermission> NEW_FILE_PERMISSIONS = PosixFilePermissions.fromString("rw-r--r--");
+
     public void setFile(File file) {
         this.file = file;
     }
 
     private File file;
+    private final Object saveLock = new Object();
+    private long saveDelay = -1;
+    private CompletableFuture<Void> pendingSave;
+    private String pendingData;
+    private long pendingGeneration;
+    private long saveGeneration;
+    private final Object writeLock = new Object();
+    private long writtenGeneration;
+    private final List<Consumer<? super SmartYamlConfiguration>> loadListeners = new CopyOnWriteArrayList<>();
+    private volatile ConfigMetrics metrics;
+    private volatile boolean deferred;
+    private static volatile File cacheDirectory;
 
     /**
      * Instantiates a new SmartYamlConfiguration with a selected {@link java.io.File} to load/save from/to and
@@ -77,27 +119,221 @@ public class SmartYamlConfiguration extends YamlConfiguration implements SmartCo
         this.file = null;
     }
 
+    /**
+     * Sets a directory to keep binary copies of parsed files in. When a file has not changed since its copy was
+     * made, loading reads the copy instead of parsing the YAML again. Passing null turns caching off, which is the
+     * default.
+     *
+     * @param directory directory to keep cached files in
+     */
+    public static void setCacheDirectory(File directory) {
+        cacheDirectory = directory;
+    }
+
+    public static File getCacheDirectory() {
+        return cacheDirectory;
+    }
+
     /**
      * Loads from the file passed into the constructor.
      *
-     * Equivalent of using {@link #load(java.io.File)} on a {@link java.io.File}.
+     * Equivalent of using {@link #load(java.io.File)} on a {@link java.io.File}, except that a cached copy is read
+     * instead when a cache directory is set and the file has not changed.
      */
     @Override
     public void load() {
         try {
-            load(this.file);
+            read();
         } catch (Exception e) {
             // do nothing
+            return;
+        }
+        fireLoaded();
+    }
+
+    /**
+     * Loads from the file passed into the constructor on the executor. Unlike {@link #load()}, a file that cannot be
+     * read or parsed completes the future exceptionally; the previous contents are kept either way.
+     * <p>
+     * The contents are replaced on the executor's thread, so a configuration loaded this way should only be read
+     * once the future has completed, or through a {@link MasterConfiguration}.
+     *
+     * @param executor executor to load on
+     * @return future completed once loading has finished
+     */
+    @Override
+    public CompletableFuture<Void> loadAsync(Executor executor) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                read();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+            fireLoaded();
+        }, executor);
+    }
+
+    /**
+     * Loads from the file without calling the load listeners, for callers that publish several files at once and
+     * call {@link #fireLoaded()} afterwards.
+     *
+     * @return if the file was loaded
+     */
+    boolean loadSilently() {
+        try {
+            read();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void read() throws Exception {
+        ConfigMetrics m = metrics;
+        long start = m == null ? 0 : System.nanoTime();
+        File cache = getCacheFile();
+        if (cache == null) {
+            load(this.file);
+        } else {
+            loadCached(cache);
+        }
+        deferred = false;
+        if (m != null) {
+            m.time(ConfigMetrics.Operation.PARSE, getFileName(), System.nanoTime() - start);
+        }
+    }
+
+    void fireLoaded() {
+        for (Consumer<? super SmartYamlConfiguration> listener : loadListeners) {
+            listener.accept(this);
+        }
+    }
+
+    /**
+     * Creates a configuration for a file without loading it. A {@link MasterConfiguration} reads such a file straight
+     * into its own settings instead of through this configuration, which stays empty until {@link #load()} is called.
+     *
+     * @param file file to load/save from/to
+     * @return configuration that has not been loaded
+     */
+    static SmartYamlConfiguration deferred(File file) {
+        return defer(new SmartYamlConfiguration(), file);
+    }
+
+    static SmartYamlConfiguration defer(SmartYamlConfiguration configuration, File file) {
+        configuration.file = file;
+        configuration.deferred = true;
+        return configuration;
+    }
+
+    boolean isDeferred() {
+        return deferred;
+    }
+
+    /**
+     * Reads the file straight into the entries a {@link MasterConfiguration} holds, without loading it into this
+     * configuration.
+     *
+     * @param prefix prefix of every key, including its trailing dot
+     * @return flattened entries, or null if the file has to be loaded the usual way
+     */
+    Map<String, ConfigValue> flattenFile(String prefix) {
+        return YamlFlattener.flatten(file, prefix, options().pathSeparator(), this);
+    }
+
+    private void loadCached(File cache) throws IOException, InvalidConfigurationException {
+        byte[] contents = Files.readAllBytes(file.toPath());
+        long modified = file.lastModified();
+        long checksum = BinaryConfigCache.checksum(contents);
+        BinaryConfigCache.Contents cached = BinaryConfigCache.read(cache, contents.length, modified, checksum);
+        if (cached != null) {
+            map.clear();
+            if (cached.header() != null) {
+                options().header(cached.header());
+            }
+            convertMapsToSections(cached.root(), this);
+            return;
+        }
+        loadFromString(new String(contents, StandardCharsets.UTF_8));
+        try {
+            BinaryConfigCache.write(cache, contents.length, modified, checksum, options().header(), this);
+        } catch (IOException e) {
+            // do nothing, the next load parses the YAML again
+        }
+    }
+
+    File getCacheFile() {
+        File directory = cacheDirectory;
+        if (directory == null || file == null) {
+            return null;
+        }
+        return new File(directory, file.getName() + "." + Integer.toHexString(file.getAbsolutePath().hashCode()) +
+                ".cache");
+    }
+
+    /**
+     * Starts timing loads and saves of this file in the given metrics, or stops when passed null. Flattening the file
+     * into a {@link MasterConfiguration} is timed in the same metrics.
+     *
+     * @param metrics metrics to record timings in
+     */
+    public void setMetrics(ConfigMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public ConfigMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Adds a listener that is called every time {@link #load()} succeeds.
+     *
+     * @param listener listener to add
+     */
+    public void addLoadListener(Consumer<? super SmartYamlConfiguration> listener) {
+        loadListeners.add(listener);
+    }
+
+    public void removeLoadListener(Consumer<? super SmartYamlConfiguration> listener) {
+        loadListeners.remove(listener);
+    }
+
+    /**
+     * Replaces the contents of this configuration with the given YAML. If the YAML cannot be parsed, the previous
+     * contents are kept, so reloading a file that is in the middle of being edited does not wipe it.
+     *
+     * @param contents YAML to load
+     * @throws InvalidConfigurationException if the YAML cannot be parsed
+     */
+    @Override
+    public void loadFromString(String contents) throws InvalidConfigurationException {
+        Map<String, Object> previous = new LinkedHashMap<>(map);
+        map.clear();
+        try {
+            super.loadFromString(contents);
+        } catch (InvalidConfigurationException | RuntimeException e) {
+            map.clear();
+            map.putAll(previous);
+            throw e;
         }
     }
 
     /**
      * Saves to the file passed into the constructor.
      *
-     * Equivalent of using {@link #save(java.io.File)} on a {@link java.io.File}.
+     * Equivalent of using {@link #save(java.io.File)} on a {@link java.io.File}, unless a save delay has been set
+     * with {@link #setSaveDelay(long, java.util.concurrent.TimeUnit)}, in which case this is {@link #saveAsync()}.
      */
     @Override
     public void save() {
+        if (getSaveDelay() >= 0) {
+            try {
+                saveAsync();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Could not save " + (file == null ? "configuration" : file.getPath()), e);
+            }
+            return;
+        }
         try {
             save(this.file);
         } catch (Exception e) {
@@ -105,6 +341,207 @@ public class SmartYamlConfiguration extends YamlConfiguration implements SmartCo
         }
     }
 
+    /**
+     * Saves to a temporary file next to the target and then moves it over the target, so the target is never left
+     * half-written. Saving to the file passed into the constructor replaces any write-behind save still waiting to
+     * run, so an older save can never land on top of this one.
+     *
+     * @param file file to save to
+     * @throws IOException if the file could not be written
+     */
+    @Override
+    public void save(File file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null");
+        }
+        if (!file.equals(this.file)) {
+            write(file, saveToString());
+            return;
+        }
+        String data;
+        long generation;
+        synchronized (saveLock) {
+            data = saveToString();
+            generation = ++saveGeneration;
+            // the pending save completes without writing, since this one has newer contents
+            pendingData = null;
+        }
+        writeLatest(file, data, generation);
+    }
+
+    /**
+     * Writes to the file passed into the constructor unless a newer save has already been written to it, so saves
+     * that were requested in one order cannot reach the file in another.
+     */
+    private void writeLatest(File file, String data, long generation) throws IOException {
+        synchronized (writeLock) {
+            if (generation < writtenGeneration) {
+                return;
+            }
+            write(file, data);
+            writtenGeneration = generation;
+        }
+    }
+
+    private void write(File file, String data) throws IOException {
+        ConfigMetrics m = metrics;
+        long start = m == null ? 0 : System.nanoTime();
+        writeAtomically(file, data);
+        if (m != null) {
+            m.time(ConfigMetrics.Operation.SAVE, file.getName(), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Schedules a save to the file passed into the constructor on a background thread. Saves requested before the
+     * scheduled one has started are merged into it, so a burst of calls leads to a single write of the latest
+     * contents.
+     * <p>
+     * The contents are serialized on the calling thread, so only the write itself happens in the background and
+     * changes made while it runs cannot break it. The configuration still must not be changed by another thread while
+     * this serializes it. A write that fails is logged, besides completing the future exceptionally. A save to the
+     * same file made in the meantime by {@link #save(File)} or {@link #saveAsync(Executor)} replaces this one, which
+     * then completes without writing.
+     *
+     * @return future completed once the file has been written, or completed exceptionally if it could not be
+     */
+    @Override
+    public CompletableFuture<Void> saveAsync() {
+        synchronized (saveLock) {
+            // serialized under the lock, so the contents handed over are always those of the latest request
+            pendingData = saveToString();
+            pendingGeneration = ++saveGeneration;
+            if (pendingSave != null) {
+                return pendingSave;
+            }
+            CompletableFuture<Void> save = new CompletableFuture<>();
+            pendingSave = save;
+            SaveExecutor.INSTANCE.schedule(() -> runSave(save), Math.max(saveDelay, 0), TimeUnit.MILLISECONDS);
+            return save;
+        }
+    }
+
+    /**
+     * Saves to the file passed into the constructor on the executor. The contents are serialized on the calling
+     * thread, so later changes do not end up in this save, and only the write happens on the executor.
+     *
+     * @param executor executor to write on
+     * @return future completed once the file has been written, or completed exceptionally if it could not be
+     */
+    @Override
+    public CompletableFuture<Void> saveAsync(Executor executor) {
+        ConfigMetrics m = metrics;
+        long start = m == null ? 0 : System.nanoTime();
+        File target = this.file;
+        if (target == null) {
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IllegalArgumentException("File cannot be null"));
+            return failed;
+        }
+        String data;
+        long generation;
+        synchronized (saveLock) {
+            data = saveToString();
+            generation = ++saveGeneration;
+            pendingData = null;
+        }
+        return CompletableFuture.runAsync(() -> {
+            try {
+                writeLatest(target, data, generation);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+            if (m != null) {
+                m.time(ConfigMetrics.Operation.SAVE, target.getName(), System.nanoTime() - start);
+            }
+        }, executor);
+    }
+
+    /**
+     * Makes {@link #save()} write in the background, merging every save requested within the delay into one write.
+     * A negative delay turns this off and makes {@link #save()} write immediately again.
+     *
+     * @param delay how long to wait for more saves before writing
+     * @param unit  unit of the delay
+     */
+    public void setSaveDelay(long delay, TimeUnit unit) {
+        synchronized (saveLock) {
+            saveDelay = delay < 0 ? -1 : unit.toMillis(delay);
+        }
+    }
+
+    public long getSaveDelay() {
+        synchronized (saveLock) {
+            return saveDelay;
+        }
+    }
+
+    private void runSave(CompletableFuture<Void> save) {
+        String data;
+        long generation;
+        synchronized (saveLock) {
+            // anything changed from here on needs a save of its own
+            data = pendingData;
+            generation = pendingGeneration;
+            pendingData = null;
+            pendingSave = null;
+        }
+        File target = this.file;
+        try {
+            if (target == null) {
+                throw new IllegalArgumentException("File cannot be null");
+            }
+            if (data != null) {
+                writeLatest(target, data, generation);
+            }
+            save.complete(null);
+        } catch (Throwable t) {
+            LOGGER.log(Level.WARNING, "Could not save " + (target == null ? "configuration" : target.getPath()), t);
+            save.completeExceptionally(t);
+        }
+    }
+
+    static void writeAtomically(File file, String data) throws IOException {
+        writeAtomically(file, data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes to a temporary file next to the target and moves it over the target. A target that is a link is resolved
+     * first, so the file it points at is replaced and the link is kept, and the permissions of the file being
+     * replaced are carried over. A new file gets {@code rw-r--r--} where the file system has POSIX permissions.
+     */
+    static void writeAtomically(File file, byte[] data) throws IOException {
+        Path target = file.toPath().toAbsolutePath();
+        if (Files.exists(target)) {
+            target = target.toRealPath();
+        }
+        Path parent = target.getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+        try {
+            PosixFileAttributeView view = Files.getFileAttributeView(temp, PosixFileAttributeView.class);
+            if (view != null) {
+                view.setPermissions(Files.exists(target) ? Files.getPosixFilePermissions(target) :
+                        NEW_FILE_PERMISSIONS);
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
     @Override
     public File getFile() {
         return file;
@@ -115,4 +552,14 @@ public class SmartYamlConfiguration extends YamlConfiguration implements SmartCo
         return file != null ? file.getName() : "";
     }
 
+    private static final class SaveExecutor {
+
+        private static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "SmartYamlConfiguration-save");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    }
+
 }
@@ -0,0 +1,120 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What a call to {@link VersionedSmartYamlConfiguration#updateWithReport()} did. Paths use the path separator of
+ * the updated configuration.
+ */
+public final class UpdateReport {
+
+    private final VersionedConfiguration.VersionUpdateType type;
+    private final boolean successful;
+    private final boolean versionChanged;
+    private final List<String> added;
+    private final List<String> changed;
+    private final List<String> removed;
+    private final File backup;
+    private final boolean saved;
+
+    UpdateReport(VersionedConfiguration.VersionUpdateType type, boolean successful, boolean versionChanged,
+                 List<String> added, List<String> changed, List<String> removed, File backup, boolean saved) {
+        this.type = type;
+        this.successful = successful;
+        this.versionChanged = versionChanged;
+        this.added = Collections.unmodifiableList(added);
+        this.changed = Collections.unmodifiableList(changed);
+        this.removed = Collections.unmodifiableList(removed);
+        this.backup = backup;
+        this.saved = saved;
+    }
+
+    static UpdateReport empty(VersionedConfiguration.VersionUpdateType type, boolean successful) {
+        return new UpdateReport(type, successful, false, Collections.<String>emptyList(),
+                Collections.<String>emptyList(), Collections.<String>emptyList(), null, false);
+    }
+
+    public VersionedConfiguration.VersionUpdateType getType() {
+        return type;
+    }
+
+    /**
+     * Returns what {@link VersionedSmartYamlConfiguration#update()} returns: false if no update was needed or the
+     * backup could not be made.
+     *
+     * @return if the update was successful
+     */
+    public boolean isSuccessful() {
+        return successful;
+    }
+
+    /**
+     * Returns true if any setting other than the version was added, changed or removed.
+     *
+     * @return if settings changed
+     */
+    public boolean hasChanges() {
+        return !added.isEmpty() || !changed.isEmpty() || !removed.isEmpty();
+    }
+
+    public boolean isVersionChanged() {
+        return versionChanged;
+    }
+
+    public List<String> getAdded() {
+        return added;
+    }
+
+    public List<String> getChanged() {
+        return changed;
+    }
+
+    public List<String> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Gets the backup that was made of the file before it was updated.
+     *
+     * @return backup file, or null if no backup was needed
+     */
+    public File getBackup() {
+        return backup;
+    }
+
+    public boolean isSaved() {
+        return saved;
+    }
+
+    @Override
+    public String toString() {
+        return "UpdateReport[" + type + ", successful=" + successful + ", added=" + added + ", changed=" + changed +
+                ", removed=" + removed + ", versionChanged=" + versionChanged + ", backup=" + backup + ", saved=" +
+                saved + "]";
+    }
+
+}
@@ -22,6 +22,9 @@
  */
 package com.tealcube.minecraft.bukkit.config;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 public interface VersionedConfiguration {
 
     String getVersion();
@@ -32,6 +35,25 @@ public interface VersionedConfiguration {
 
     boolean update();
 
+    /**
+     * Runs {@link #update()} on the executor.
+     *
+     * @param executor executor to update on
+     * @return future of whether the update was successful
+     */
+    default CompletableFuture<Boolean> updateAsync(Executor executor) {
+        return CompletableFuture.supplyAsync(this::update, executor);
+    }
+
+    /**
+     * Runs {@link #update()} on the {@link ConfigExecutors#getDefault() default executor}.
+     *
+     * @return future of whether the update was successful
+     */
+    default CompletableFuture<Boolean> updateAsync() {
+        return updateAsync(ConfigExecutors.getDefault());
+    }
+
     enum VersionUpdateType {
         BACKUP_NO_UPDATE, BACKUP_AND_UPDATE, BACKUP_AND_NEW, NOTHING
     }
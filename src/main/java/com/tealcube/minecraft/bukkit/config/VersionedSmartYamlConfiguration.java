@@ -23,23 +23,39 @@
 package com.tealcube.minecraft.bukkit.config;
 
 import com.github.zafarkhaja.semver.Version;
-import com.google.common.io.Files;
 import org.bukkit.configuration.Configuration;
 import org.bukkit.configuration.file.YamlConfiguration;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * An extension of SmartYamlConfiguration that can backup and update itself.
  */
 public class VersionedSmartYamlConfiguration extends SmartYamlConfiguration implements VersionedConfiguration {
 
-    private static final String YAML_ENDING = ".yml";
     private static final String BACKUP_ENDING = ".backup";
+    private static final String COMPRESSED_ENDING = ".gz";
+    private static final String VERSION_KEY = "version";
     private Configuration checkAgainst;
+    private File checkAgainstFile;
+    private byte[] checkAgainstContents;
+    private String version;
     private VersionUpdateType updateType;
+    private BackupMode backupMode = BackupMode.LINK;
 
     /**
      * Instantiates a new VersionedIvoryYamlConfiguration with a selected {@link java.io.File} to load/save from/to, a
@@ -67,7 +83,8 @@ public class VersionedSmartYamlConfiguration extends SmartYamlConfiguration impl
                                            VersionUpdateType updateType) {
         super(file, separator);
         if (checkAgainst != null && checkAgainst.exists()) {
-            this.checkAgainst = new SmartYamlConfiguration(checkAgainst);
+            // parsed once something other than its version is needed
+            this.checkAgainstFile = checkAgainst;
         }
         this.updateType = updateType;
     }
@@ -98,7 +115,12 @@ public class VersionedSmartYamlConfiguration extends SmartYamlConfiguration impl
                                            VersionUpdateType updateType) {
         super(file, separator);
         if (checkAgainst != null) {
-            this.checkAgainst = YamlConfiguration.loadConfiguration(checkAgainst);
+            try {
+                this.checkAgainstContents = readFully(checkAgainst);
+            } catch (IOException e) {
+                // do nothing, the same as an empty resource
+                this.checkAgainstContents = new byte[0];
+            }
         }
         this.updateType = updateType;
     }
@@ -118,8 +140,37 @@ public class VersionedSmartYamlConfiguration extends SmartYamlConfiguration impl
      * @return version passed into the constructor
      */
     @Override
-    public String getVersion() {
-        return checkAgainst == null ? "" : checkAgainst.getString("version", "");
+    public synchronized String getVersion() {
+        if (version == null) {
+            if (checkAgainstFile != null && checkAgainst == null) {
+                version = Versions.read(checkAgainstFile);
+            } else if (checkAgainstContents != null && checkAgainst == null) {
+                version = Versions.read(checkAgainstContents);
+            }
+            if (version == null) {
+                Configuration defaults = getCheckAgainst();
+                version = defaults == null ? "" : defaults.getString(VERSION_KEY, "");
+            }
+        }
+        return version;
+    }
+
+    /**
+     * Gets the configuration this one is checked against, parsing it the first time it is needed.
+     *
+     * @return configuration checked against, or null if there is none
+     */
+    public synchronized Configuration getCheckAgainst() {
+        if (checkAgainst == null) {
+            if (checkAgainstFile != null) {
+                checkAgainst = new SmartYamlConfiguration(checkAgainstFile);
+                checkAgainstFile = null;
+            } else if (checkAgainstContents != null) {
+                checkAgainst = YamlConfiguration.loadConfiguration(new ByteArrayInputStream(checkAgainstContents));
+                checkAgainstContents = null;
+            }
+        }
+        return checkAgainst;
     }
 
     /**
@@ -133,78 +184,197 @@ public class VersionedSmartYamlConfiguration extends SmartYamlConfiguration impl
     }
 
     /**
-     * Returns true if this file needs to update itself and false if not.
+     * Returns true if this file needs to update itself and false if not. A file without a valid version, or checked
+     * against one without, never needs to update.
      *
      * @return if file needs to update
      */
     @Override
     public boolean needsToUpdate() {
-        Version version = Version.valueOf(getVersion());
-        Version localVersion = Version.valueOf(getLocalVersion());
-        return localVersion.greaterThan(version);
+        Version version = Versions.parse(getVersion());
+        Version localVersion = Versions.parse(getLocalVersion());
+        return version != null && localVersion != null && localVersion.greaterThan(version);
     }
 
     /**
      * Attempts to update itself and returns if it succeeded.
      *
      * @return if update was successful
+     * @see #updateWithReport()
      */
     @Override
     public boolean update() {
+        return updateWithReport().isSuccessful();
+    }
+
+    /**
+     * Updates this configuration and reports what changed. The local settings are compared with the settings
+     * checked against in a single walk of both, and only the differences are applied: missing settings for
+     * {@link VersionUpdateType#BACKUP_AND_UPDATE}, and every difference for {@link VersionUpdateType#BACKUP_AND_NEW}.
+     * A backup is only made if settings actually change, and the file is only saved if anything changed at all,
+     * including the version.
+     *
+     * @return report of the update
+     */
+    public UpdateReport updateWithReport() {
         if (!needsToUpdate()) {
-            return false;
+            return UpdateReport.empty(updateType, false);
         }
-        File directory = getFile().getParentFile();
-        File backupLocation = new File(directory, getFile().getName().replace(YAML_ENDING, YAML_ENDING + BACKUP_ENDING));
         switch (updateType) {
             case BACKUP_NO_UPDATE:
-                try {
-                    Files.copy(getFile(), backupLocation);
-                } catch (IOException e) {
-                    return false;
+                File backup = backup();
+                if (backup == null) {
+                    return UpdateReport.empty(updateType, false);
                 }
-                return true;
+                return new UpdateReport(updateType, true, false, Collections.<String>emptyList(),
+                        Collections.<String>emptyList(), Collections.<String>emptyList(), backup, false);
             case BACKUP_AND_UPDATE:
-                try {
-                    Files.copy(getFile(), backupLocation);
-                } catch (IOException e) {
-                    return false;
-                }
-                for (String key : checkAgainst.getKeys(true)) {
-                    if (checkAgainst.isConfigurationSection(key)) {
-                        continue;
-                    }
-                    if (!isSet(key)) {
-                        set(key, checkAgainst.get(key));
-                    }
-                }
-                set("version", getVersion());
-                save();
-                return true;
             case BACKUP_AND_NEW:
-                try {
-                    Files.copy(getFile(), backupLocation);
-                } catch (IOException e) {
-                    return false;
-                }
-                for (String key : getKeys(true)) {
-                    set(key, null);
-                }
-                for (String key : checkAgainst.getKeys(true)) {
-                    if (checkAgainst.isConfigurationSection(key)) {
-                        continue;
-                    }
-                    set(key, checkAgainst.get(key));
-                }
-                set("version", getVersion());
-                save();
-                return true;
+                return merge(updateType == VersionUpdateType.BACKUP_AND_NEW);
             case NOTHING:
-                return true;
+                return UpdateReport.empty(updateType, true);
             default:
-                return true;
+                return UpdateReport.empty(updateType, true);
         }
     }
 
+    /**
+     * Sets how backups are made. Defaults to {@link BackupMode#LINK}.
+     *
+     * @param backupMode how to back up the file
+     */
+    public void setBackupMode(BackupMode backupMode) {
+        this.backupMode = backupMode == null ? BackupMode.LINK : backupMode;
+    }
+
+    public BackupMode getBackupMode() {
+        return backupMode;
+    }
+
+    private UpdateReport merge(boolean replace) {
+        ConfigMerge merge = ConfigMerge.compute(getCheckAgainst(), this, replace, VERSION_KEY);
+        boolean versionChanged = !getVersion().equals(getLocalVersion());
+        File backup = null;
+        if (!merge.isEmpty()) {
+            backup = backup();
+            if (backup == null) {
+                return UpdateReport.empty(updateType, false);
+            }
+            merge.apply();
+        }
+        boolean save = !merge.isEmpty() || versionChanged;
+        if (save) {
+            set(VERSION_KEY, getVersion());
+            save();
+        }
+        return new UpdateReport(updateType, true, versionChanged, merge.getAdded(), merge.getChanged(),
+                merge.getRemoved(), backup, save);
+    }
+
+    private File backup() {
+        File directory = getFile().getParentFile();
+        File backupLocation = new File(directory, getFile().getName() + BACKUP_ENDING);
+        Path source = getFile().toPath();
+        if (backupLocation.getAbsoluteFile().toPath().normalize().equals(source.toAbsolutePath().normalize())) {
+            // replacing the backup must never delete or overwrite the file being backed up
+            return null;
+        }
+        try {
+            switch (backupMode) {
+                case LINK:
+                    try {
+                        Files.deleteIfExists(backupLocation.toPath());
+                        Files.createLink(backupLocation.toPath(), source);
+                        return backupLocation;
+                    } catch (IOException | UnsupportedOperationException e) {
+                        return compressedBackup(source, backupLocation);
+                    }
+                case COMPRESSED:
+                    return compressedBackup(source, backupLocation);
+                default:
+                    Files.copy(source, backupLocation.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    return backupLocation;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static File compressedBackup(Path source, File backupLocation) throws IOException {
+        File compressed = new File(backupLocation.getPath() + COMPRESSED_ENDING);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            Files.copy(source, out);
+        }
+        writeAtomically(compressed, bytes.toByteArray());
+        return compressed;
+    }
+
+    /**
+     * Checks which of the configurations need to update, on the {@link ConfigExecutors#getDefault() default
+     * executor}.
+     *
+     * @param configurations configurations to check
+     * @return future of the configurations that need to update, in the order they were passed
+     * @see #checkAll(Executor, VersionedSmartYamlConfiguration...)
+     */
+    public static CompletableFuture<List<VersionedSmartYamlConfiguration>> checkAll(
+            VersionedSmartYamlConfiguration... configurations) {
+        return checkAll(ConfigExecutors.getDefault(), configurations);
+    }
+
+    /**
+     * Checks which of the configurations need to update, all of them at once on the executor. Versions are read
+     * from the files checked against without parsing them where possible, so this is cheap to run at startup.
+     *
+     * @param executor       executor to check on
+     * @param configurations configurations to check
+     * @return future of the configurations that need to update, in the order they were passed
+     */
+    public static CompletableFuture<List<VersionedSmartYamlConfiguration>> checkAll(
+            Executor executor, VersionedSmartYamlConfiguration... configurations) {
+        List<CompletableFuture<Boolean>> checks = new ArrayList<>();
+        for (VersionedSmartYamlConfiguration configuration : configurations) {
+            checks.add(CompletableFuture.supplyAsync(configuration::needsToUpdate, executor));
+        }
+        return CompletableFuture.allOf(checks.toArray(new CompletableFuture<?>[checks.size()])).thenApply(v -> {
+            List<VersionedSmartYamlConfiguration> outdated = new ArrayList<>();
+            for (int i = 0; i < configurations.length; i++) {
+                if (checks.get(i).join()) {
+                    outdated.add(configurations[i]);
+                }
+            }
+            return outdated;
+        });
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * How {@link VersionedSmartYamlConfiguration} backs up a file before updating it.
+     */
+    public enum BackupMode {
+        /**
+         * Hard links the backup to the file. Saves replace the file rather than write into it, so the link keeps the
+         * old contents without copying them. Falls back to {@link #COMPRESSED} where links are not supported.
+         */
+        LINK,
+        /**
+         * Writes a gzip compressed copy, named like the backup with {@code .gz} appended.
+         */
+        COMPRESSED,
+        /**
+         * Writes a full copy.
+         */
+        COPY
+    }
 
 }
@@ -0,0 +1,174 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import com.github.zafarkhaja.semver.Version;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads and parses the versions of versioned configurations. Versions are read from the top level {@code version}
+ * line of a file without parsing the rest of it, and both the versions read from files and the parsed versions are
+ * cached, so checking many configurations at startup reads and parses each version once.
+ */
+final class Versions {
+
+    private static final String KEY = "version";
+    private static final Resolver RESOLVER = new Resolver();
+    private static final ConcurrentHashMap<String, Object> PARSED = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, FileVersion> FILES = new ConcurrentHashMap<>();
+    private static final Object INVALID = new Object();
+
+    private Versions() {
+        // do nothing
+    }
+
+    /**
+     * Parses a version, reusing earlier results for the same string.
+     *
+     * @param version version to parse
+     * @return parsed version, or null if the string is not a valid version
+     */
+    static Version parse(String version) {
+        if (version == null || version.isEmpty()) {
+            return null;
+        }
+        Object parsed = PARSED.get(version);
+        if (parsed == null) {
+            try {
+                parsed = Version.valueOf(version);
+            } catch (RuntimeException e) {
+                parsed = INVALID;
+            }
+            PARSED.putIfAbsent(version, parsed);
+        }
+        return parsed == INVALID ? null : (Version) parsed;
+    }
+
+    /**
+     * Reads the version line of a file. The result is cached until the file's size or modification time change.
+     *
+     * @param file file to read
+     * @return version, "" if the file has no version line, or null if the version has to be read by parsing the file
+     */
+    static String read(File file) {
+        String path = file.getAbsolutePath();
+        long modified = file.lastModified();
+        long length = file.length();
+        FileVersion cached = FILES.get(path);
+        if (cached != null && cached.modified == modified && cached.length == length) {
+            return cached.version;
+        }
+        String version;
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            version = read(in);
+        } catch (IOException e) {
+            return null;
+        }
+        FILES.put(path, new FileVersion(modified, length, version));
+        return version;
+    }
+
+    static String read(byte[] contents) {
+        try {
+            return read(new ByteArrayInputStream(contents));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Scans for a line starting with {@code version:}. Only plain strings and simple quoted strings are taken from
+     * the line itself; values YAML would read as something else, such as {@code 1.10} read as a number, are left to a
+     * full parse so the result is the same as reading the parsed file.
+     */
+    private static String read(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        boolean mentioned = false;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("{") || line.startsWith("%")) {
+                return null;
+            }
+            if (!line.startsWith(KEY)) {
+                mentioned |= line.contains(KEY);
+                continue;
+            }
+            mentioned = true;
+            String rest = line.substring(KEY.length()).trim();
+            if (!rest.startsWith(":")) {
+                continue;
+            }
+            return value(rest.substring(1).trim());
+        }
+        // a version written some other way, such as with a quoted key, is left to a full parse
+        return mentioned ? null : "";
+    }
+
+    private static String value(String value) {
+        if (value.startsWith("'")) {
+            int end = value.lastIndexOf('\'');
+            return end > 0 && value.indexOf('\'', 1) == end ? value.substring(1, end) : null;
+        }
+        if (value.startsWith("\"")) {
+            int end = value.lastIndexOf('"');
+            String quoted = end > 0 ? value.substring(1, end) : null;
+            return quoted == null || quoted.indexOf('"') >= 0 || quoted.indexOf('\\') >= 0 ? null : quoted;
+        }
+        int comment = value.indexOf(" #");
+        if (comment >= 0) {
+            value = value.substring(0, comment).trim();
+        }
+        if (value.isEmpty() || value.startsWith("&") || value.startsWith("*") || value.startsWith("!") ||
+                value.startsWith("|") || value.startsWith(">") || value.startsWith("[") || value.startsWith("{")) {
+            return null;
+        }
+        return RESOLVER.resolve(NodeId.scalar, value, true).equals(Tag.STR) ? value : null;
+    }
+
+    private static final class FileVersion {
+
+        private final long modified;
+        private final long length;
+        private final String version;
+
+        private FileVersion(long modified, long length, String version) {
+            this.modified = modified;
+            this.length = length;
+            this.version = version;
+        }
+
+    }
+
+}
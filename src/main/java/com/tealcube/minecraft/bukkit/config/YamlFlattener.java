@@ -0,0 +1,222 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.MappingStartEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.events.SequenceStartEvent;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.ScalarNode;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Flattens a YAML file straight from the parser's events into the entries a {@link MasterConfiguration} holds,
+ * without building a tree of sections first. Keys are joined with the path separator as they are read, and each
+ * scalar is resolved and constructed once, the same way SnakeYAML would construct it inside a tree.
+ * <p>
+ * Anything the tree would treat differently is not streamed: aliases, merge keys, explicit tags, serialized objects,
+ * duplicate keys, empty keys or keys holding the path separator, and documents that are not a single mapping. For those files {@link #flatten} returns null and the
+ * caller parses the file the usual way.
+ */
+final class YamlFlattener {
+
+    private static final Resolver RESOLVER = new Resolver();
+    private static final String SERIALIZED_TYPE_KEY = "==";
+
+    private final ScalarConstructor constructor = new ScalarConstructor();
+    private final Iterator<Event> events;
+    private final String prefix;
+    private final char separator;
+    private final SmartConfiguration source;
+    private final Map<String, ConfigValue> flattened = new LinkedHashMap<>();
+
+    private YamlFlattener(Reader reader, String prefix, char separator, SmartConfiguration source) {
+        this.events = new Yaml().parse(reader).iterator();
+        this.prefix = prefix;
+        this.separator = separator;
+        this.source = source;
+    }
+
+    /**
+     * Reads a YAML file into flattened entries.
+     *
+     * @param file      file to read
+     * @param prefix    prefix of every key, including its trailing dot
+     * @param separator separator between the keys of nested mappings
+     * @param source    configuration the values are recorded as coming from
+     * @return flattened entries, or null if the file cannot be read or streamed
+     */
+    static Map<String, ConfigValue> flatten(File file, String prefix, char separator, SmartConfiguration source) {
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            return new YamlFlattener(reader, prefix, separator, source).document();
+        } catch (IOException | YAMLException | Unsupported e) {
+            return null;
+        }
+    }
+
+    private Map<String, ConfigValue> document() {
+        expect(Event.ID.StreamStart);
+        Event event = events.next();
+        if (event.is(Event.ID.StreamEnd)) {
+            return flattened;
+        }
+        event = events.next();
+        if (event.is(Event.ID.MappingStart)) {
+            checkTag(((MappingStartEvent) event).getTag());
+            mapping("");
+        } else if (!event.is(Event.ID.Scalar) || scalar((ScalarEvent) event) != null) {
+            throw new Unsupported();
+        }
+        expect(Event.ID.DocumentEnd);
+        expect(Event.ID.StreamEnd);
+        return flattened;
+    }
+
+    private void mapping(String path) {
+        Set<String> seen = new HashSet<>();
+        Event event;
+        while (!(event = events.next()).is(Event.ID.MappingEnd)) {
+            if (!event.is(Event.ID.Scalar)) {
+                throw new Unsupported();
+            }
+            String key = String.valueOf(scalar((ScalarEvent) event));
+            // a key holding the separator is nested by the tree and may land on a path another key also sets
+            if (key.equals(SERIALIZED_TYPE_KEY) || key.isEmpty() || key.indexOf(separator) >= 0 || !seen.add(key)) {
+                throw new Unsupported();
+            }
+            String child = path.isEmpty() ? key : path + separator + key;
+            event = events.next();
+            if (event.is(Event.ID.MappingStart)) {
+                checkTag(((MappingStartEvent) event).getTag());
+                mapping(child);
+            } else {
+                Object value = value(event);
+                if (value != null) {
+                    flattened.put(prefix + child, ConfigValue.isScalar(value) ? ConfigValue.ofScalar(value, source) :
+                            ConfigValue.of(value, source));
+                }
+            }
+        }
+    }
+
+    private Object value(Event event) {
+        if (event.is(Event.ID.Scalar)) {
+            return scalar((ScalarEvent) event);
+        }
+        if (event.is(Event.ID.SequenceStart)) {
+            checkTag(((SequenceStartEvent) event).getTag());
+            List<Object> list = new ArrayList<>();
+            while (!(event = events.next()).is(Event.ID.SequenceEnd)) {
+                list.add(value(event));
+            }
+            return list;
+        }
+        if (event.is(Event.ID.MappingStart)) {
+            checkTag(((MappingStartEvent) event).getTag());
+            Map<Object, Object> map = new LinkedHashMap<>();
+            while (!(event = events.next()).is(Event.ID.MappingEnd)) {
+                Object key = value(event);
+                if (SERIALIZED_TYPE_KEY.equals(key)) {
+                    throw new Unsupported();
+                }
+                map.put(key, value(events.next()));
+            }
+            return map;
+        }
+        throw new Unsupported();
+    }
+
+    private Object scalar(ScalarEvent event) {
+        checkTag(event.getTag());
+        String value = event.getValue();
+        Tag tag = RESOLVER.resolve(NodeId.scalar, value, event.getImplicit().canOmitTagInPlainScalar());
+        if (tag.equals(Tag.STR)) {
+            return value;
+        }
+        if (tag.equals(Tag.NULL)) {
+            return null;
+        }
+        if (tag.equals(Tag.MERGE)) {
+            throw new Unsupported();
+        }
+        return constructor.construct(new ScalarNode(tag, value, event.getStartMark(), event.getEndMark(),
+                event.getStyle()));
+    }
+
+    private static void checkTag(String tag) {
+        if (tag != null && !tag.equals("!")) {
+            throw new Unsupported();
+        }
+    }
+
+    private void expect(Event.ID id) {
+        Event event = events.next();
+        if (!event.is(id)) {
+            throw new Unsupported();
+        }
+    }
+
+    /**
+     * Constructs single scalars without remembering them, which a constructor does for every node of a tree. Some
+     * of its constructs keep state, so every flattener has its own.
+     */
+    private static final class ScalarConstructor extends SafeConstructor {
+
+        private Object construct(ScalarNode node) {
+            return getConstructor(node).construct(node);
+        }
+
+    }
+
+    /**
+     * Thrown when the file has to be parsed into a tree instead.
+     */
+    private static final class Unsupported extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private Unsupported() {
+            super(null, null, false, false);
+        }
+
+    }
+
+}
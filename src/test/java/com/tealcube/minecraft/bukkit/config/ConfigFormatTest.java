@@ -0,0 +1,117 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class ConfigFormatTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void jsonRoundTrips() throws Exception {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("shop.name", "Sword \"deluxe\"\n\u00e9\u2603 \\ /");
+        values.put("shop.price", 10);
+        values.put("shop.stock", 1L << 40);
+        values.put("shop.discount", 0.25);
+        values.put("shop.open", true);
+        values.put("shop.tags", Arrays.asList("sharp", "shiny"));
+        values.put("mobs.zombie.health", -20);
+        values.put("motd", "");
+
+        File file = folder.newFile("config.json");
+        SmartJsonConfiguration configuration = new SmartJsonConfiguration(file);
+        assertRoundTrips(values, configuration, new SmartJsonConfiguration(file));
+    }
+
+    @Test
+    public void propertiesRoundTrip() throws Exception {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("shop.name", " Sword = deluxe: #1!\n\u00e9\u2603 \\");
+        values.put("shop.price", 10);
+        values.put("shop.stock", 1L << 40);
+        values.put("shop.discount", 0.25);
+        values.put("shop.open", true);
+        values.put("shop.code", "007");
+        values.put("shop.ratio", "1e3");
+        values.put("mobs.zombie.health", -20);
+        values.put("key with spaces", "value");
+
+        File file = folder.newFile("config.properties");
+        SmartPropertiesConfiguration configuration = new SmartPropertiesConfiguration(file);
+        assertRoundTrips(values, configuration, new SmartPropertiesConfiguration(file));
+    }
+
+    @Test
+    public void formatsAreFoundByExtensionOrContents() throws Exception {
+        assertEquals(ConfigFormat.JSON, ConfigFormat.forFile(write("a.json", "{}")));
+        assertEquals(ConfigFormat.PROPERTIES, ConfigFormat.forFile(write("a.properties", "")));
+        assertEquals(ConfigFormat.YAML, ConfigFormat.forFile(write("a.yaml", "a: 1\n")));
+        assertEquals(ConfigFormat.JSON, ConfigFormat.forFile(write("b", "  {\"a\": 1}")));
+        assertEquals(ConfigFormat.PROPERTIES, ConfigFormat.forFile(write("c", "a=1\n")));
+        assertEquals(ConfigFormat.YAML, ConfigFormat.forFile(write("d", "a: 1\n")));
+    }
+
+    private void assertRoundTrips(Map<String, Object> values, SmartYamlConfiguration configuration,
+                                  SmartYamlConfiguration loaded) throws Exception {
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            configuration.set(entry.getKey(), entry.getValue());
+        }
+        configuration.save();
+        loaded.load();
+
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            assertEquals(entry.getKey(), entry.getValue(), loaded.get(entry.getKey()));
+        }
+        assertEquals(configuration.saveToString(), loaded.saveToString());
+
+        // the master configuration reads the file straight into settings, which has to match loading it
+        MasterConfiguration fromFile = MasterConfiguration.loadFromFiles(configuration.getFile());
+        MasterConfiguration fromLoaded = MasterConfiguration.loadFromFiles(loaded);
+        assertEquals(fromLoaded.getKeys(), fromFile.getKeys());
+        for (String key : fromLoaded.getKeys()) {
+            assertEquals(key, fromLoaded.get(key, null), fromFile.get(key, null));
+        }
+        assertEquals(values.size(), fromFile.size());
+    }
+
+    private File write(String name, String contents) throws Exception {
+        File file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+}
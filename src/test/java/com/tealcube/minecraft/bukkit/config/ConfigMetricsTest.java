@@ -0,0 +1,62 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class ConfigMetricsTest {
+
+    @Test
+    public void readsBeyondTheLimitAreCountedTogether() {
+        MasterConfiguration configuration = new MasterConfiguration();
+        ConfigMetrics metrics = new ConfigMetrics(0, 100);
+        configuration.setMetrics(metrics);
+        for (int i = 0; i < 1000; i++) {
+            configuration.getInt("players.player-" + i + ".kills", 0);
+        }
+
+        Map<String, ConfigMetrics.KeyStats> keys = metrics.snapshot().getKeys();
+        assertEquals(101, keys.size());
+        assertEquals(900, keys.get(ConfigMetrics.OTHER).getReads());
+        assertEquals(1000, metrics.getFallbacks());
+    }
+
+    @Test
+    public void prefixesStayCountedOnceTheKeyCacheIsFull() {
+        MasterConfiguration configuration = new MasterConfiguration();
+        ConfigMetrics metrics = new ConfigMetrics(1, 100);
+        configuration.setMetrics(metrics);
+        for (int i = 0; i < 1000; i++) {
+            configuration.getInt("players.player-" + i, 0);
+        }
+
+        Map<String, ConfigMetrics.KeyStats> keys = metrics.snapshot().getKeys();
+        assertEquals(1, keys.size());
+        assertEquals(1000, keys.get("players").getReads());
+    }
+
+}
@@ -0,0 +1,94 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class LazySmartYamlConfigurationTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsTheSameAsAnEagerLoad() throws Exception {
+        assertSameAsEager("mobs:\n  zombie:\n    health: 20\n    drops: [bone, flesh]\nplayers:\n  max: 10\n");
+        assertSameAsEager("a.b: 1\na:\n  c: 2\nz: 3\n");
+        assertSameAsEager("items:\n  sword: 1\nitems.shield: 2\n");
+        assertSameAsEager("1: one\nyes: y\n\"quoted key\": q\nplain: p\n");
+        assertSameAsEager("first: 1\nsecond: 2\nfirst: 3\n");
+        assertSameAsEager("base: &base\n  speed: 1\nfast:\n  <<: *base\n  speed: 2\n");
+    }
+
+    @Test
+    public void brokenFileKeepsThePreviousContents() throws Exception {
+        File file = write("lazy.yml", "good:\n  value: 1\n");
+        LazySmartYamlConfiguration configuration = new LazySmartYamlConfiguration(file);
+        try {
+            configuration.loadFromString("first:\n  value: 1\nsecond:\n  value: [1, 2\nthird: 3\n");
+            fail("loaded a broken document");
+        } catch (InvalidConfigurationException expected) {
+            // the previous contents stay
+        }
+
+        assertEquals(1, configuration.getInt("good.value"));
+        assertEquals(1, configuration.getKeys(false).size());
+    }
+
+    private void assertSameAsEager(String contents) throws Exception {
+        File file = write("config.yml", contents);
+        SmartYamlConfiguration eager = new SmartYamlConfiguration(file);
+        LazySmartYamlConfiguration lazy = new LazySmartYamlConfiguration(file);
+
+        assertEquals(contents, new ArrayList<>(eager.getKeys(false)), new ArrayList<>(lazy.getKeys(false)));
+        for (String key : eager.getKeys(true)) {
+            assertSameValue(contents + key, eager, lazy, key);
+        }
+        assertEquals(contents, new ArrayList<>(eager.getKeys(true)), new ArrayList<>(lazy.getKeys(true)));
+    }
+
+    private static void assertSameValue(String message, SmartYamlConfiguration eager,
+                                        LazySmartYamlConfiguration lazy, String key) {
+        assertEquals(message, eager.isConfigurationSection(key), lazy.isConfigurationSection(key));
+        if (!eager.isConfigurationSection(key)) {
+            assertEquals(message, eager.get(key), lazy.get(key));
+        }
+    }
+
+    private File write(String name, String contents) throws Exception {
+        File file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+}
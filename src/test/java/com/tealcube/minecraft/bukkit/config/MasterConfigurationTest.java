@@ -0,0 +1,181 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MasterConfigurationTest {
+
+    @Test
+    public void listenersSeeTheLastCommittedValueLast() throws Exception {
+        MasterConfiguration configuration = new MasterConfiguration();
+        AtomicReference<Object> seen = new AtomicReference<>();
+        configuration.subscribe("counter.value", changes -> seen.set(changes.get("counter.value").getNewValue()));
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    configuration.set("counter.value", i * 4 + offset);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(configuration.getInt("counter.value"), seen.get());
+    }
+
+    @Test
+    public void changesMadeByListenersArriveAfterTheCurrentOnes() {
+        MasterConfiguration configuration = new MasterConfiguration();
+        AtomicBoolean changed = new AtomicBoolean();
+        List<List<Object>> seen = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            List<Object> values = new ArrayList<>();
+            seen.add(values);
+            configuration.subscribe("mobs.count", changes -> {
+                Object value = changes.get("mobs.count").getNewValue();
+                values.add(value);
+                if (changed.compareAndSet(false, true)) {
+                    configuration.set("mobs.count", 2);
+                }
+            });
+        }
+        configuration.set("mobs.count", 1);
+
+        for (List<Object> values : seen) {
+            assertEquals(2, values.size());
+            assertEquals(2, values.get(1));
+        }
+    }
+
+    @Test
+    public void onlyTrueAndFalseStringsReadAsBooleans() {
+        MasterConfiguration configuration = new MasterConfiguration();
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("flags.upper", "TRUE");
+        settings.put("flags.lower", "false");
+        settings.put("flags.yes", "yes");
+        settings.put("flags.text", "abc");
+        configuration.setAll(settings);
+        ConfigMetrics metrics = new ConfigMetrics();
+        configuration.setMetrics(metrics);
+
+        assertTrue(configuration.getBoolean("flags.upper", false));
+        assertFalse(configuration.getBoolean("flags.lower", true));
+        assertTrue(configuration.getBoolean("flags.yes", true));
+        assertFalse(configuration.getBoolean("flags.text", false));
+        assertTrue(configuration.booleanKey("flags.text", true).get());
+        assertEquals(3, metrics.getMismatches());
+    }
+
+    @Test
+    public void emptyKeysAndPathSegmentsAreRejected() {
+        MasterConfiguration configuration = new MasterConfiguration();
+        configuration.set("mobs.count", 1);
+        for (String key : new String[]{"", ".", "mobs.", ".mobs", "mobs..count"}) {
+            try {
+                configuration.set(key, 2);
+                fail("set '" + key + "'");
+            } catch (IllegalArgumentException expected) {
+                // nothing was set
+            }
+            try {
+                configuration.setAll(Collections.singletonMap(key, 2));
+                fail("set all '" + key + "'");
+            } catch (IllegalArgumentException expected) {
+                // nothing was set
+            }
+            try {
+                configuration.intKey(key, 0);
+                fail("handle for '" + key + "'");
+            } catch (IllegalArgumentException expected) {
+                // no handle was made
+            }
+        }
+
+        assertEquals(1, configuration.size());
+        assertEquals(1, configuration.getInt("mobs.count"));
+    }
+
+    @Test
+    public void brokenListenersAreLoggedAndTheOthersStillCalled() {
+        MasterConfiguration configuration = new MasterConfiguration();
+        List<LogRecord> logged = new ArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                logged.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Logger logger = Logger.getLogger(ConfigSubscription.class.getName());
+        logger.addHandler(handler);
+        try {
+            AtomicReference<Object> seen = new AtomicReference<>();
+            configuration.subscribe("mobs.count", changes -> {
+                throw new IllegalStateException("broken");
+            });
+            configuration.subscribe("mobs.count", changes -> seen.set(changes.get("mobs.count").getNewValue()));
+            configuration.set("mobs.count", 1);
+
+            assertEquals(1, seen.get());
+            assertEquals(1, logged.size());
+            assertEquals(Level.WARNING, logged.get(0).getLevel());
+            assertTrue(logged.get(0).getMessage().contains("mobs.count"));
+            assertEquals("broken", logged.get(0).getThrown().getMessage());
+        } finally {
+            logger.removeHandler(handler);
+        }
+    }
+
+}
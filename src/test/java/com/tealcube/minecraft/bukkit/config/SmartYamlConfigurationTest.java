@@ -0,0 +1,153 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNoException;
+import static org.junit.Assume.assumeTrue;
+
+public class SmartYamlConfigurationTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writeBehindSavesSurviveChangesMadeWhileWriting() throws Exception {
+        File file = folder.newFile("config.yml");
+        SmartYamlConfiguration configuration = new SmartYamlConfiguration(file);
+        for (int i = 0; i < 1000; i++) {
+            configuration.set("section-" + i + ".value", i);
+        }
+        configuration.setSaveDelay(0, TimeUnit.MILLISECONDS);
+        List<CompletableFuture<Void>> saves = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            configuration.set("added." + i, i);
+            if (i >= 10) {
+                configuration.set("added." + (i - 10), null);
+            }
+            saves.add(configuration.saveAsync());
+        }
+        for (CompletableFuture<Void> save : saves) {
+            save.get(10, TimeUnit.SECONDS);
+            assertFalse(save.isCompletedExceptionally());
+        }
+        configuration.saveAsync().get(10, TimeUnit.SECONDS);
+
+        SmartYamlConfiguration saved = new SmartYamlConfiguration(file);
+        assertEquals(configuration.getKeys(true), saved.getKeys(true));
+        assertEquals(299, saved.getInt("added.299"));
+    }
+
+    @Test
+    public void writeBehindSaveWritesTheContentsAtTheTimeOfTheRequest() throws Exception {
+        File file = folder.newFile("config.yml");
+        SmartYamlConfiguration configuration = new SmartYamlConfiguration(file);
+        configuration.setSaveDelay(200, TimeUnit.MILLISECONDS);
+        configuration.set("value", 1);
+        CompletableFuture<Void> save = configuration.saveAsync();
+        configuration.set("value", 2);
+        save.get(10, TimeUnit.SECONDS);
+
+        assertEquals(1, new SmartYamlConfiguration(file).getInt("value"));
+    }
+
+    @Test
+    public void directSaveIsNotOverwrittenByAnOlderWriteBehindSave() throws Exception {
+        File file = folder.newFile("config.yml");
+        SmartYamlConfiguration configuration = new SmartYamlConfiguration(file);
+        configuration.setSaveDelay(200, TimeUnit.MILLISECONDS);
+        configuration.set("value", 1);
+        CompletableFuture<Void> save = configuration.saveAsync();
+        configuration.set("value", 2);
+        configuration.save(file);
+        save.get(10, TimeUnit.SECONDS);
+
+        assertEquals(2, new SmartYamlConfiguration(file).getInt("value"));
+    }
+
+    @Test
+    public void saveAfterTurningTheDelayOffIsNotOverwrittenByAnOlderOne() throws Exception {
+        File file = folder.newFile("config.yml");
+        SmartYamlConfiguration configuration = new SmartYamlConfiguration(file);
+        configuration.setSaveDelay(200, TimeUnit.MILLISECONDS);
+        configuration.set("value", 1);
+        CompletableFuture<Void> save = configuration.saveAsync();
+        configuration.setSaveDelay(-1, TimeUnit.MILLISECONDS);
+        configuration.set("value", 2);
+        configuration.save();
+        save.get(10, TimeUnit.SECONDS);
+
+        assertEquals(2, new SmartYamlConfiguration(file).getInt("value"));
+    }
+
+    @Test
+    public void savingKeepsThePermissionsOfTheFile() throws Exception {
+        File file = folder.newFile("config.yml");
+        assumeTrue(Files.getFileAttributeView(file.toPath(), PosixFileAttributeView.class) != null);
+        Files.setPosixFilePermissions(file.toPath(), PosixFilePermissions.fromString("rw-rw-r--"));
+        SmartYamlConfiguration configuration = new SmartYamlConfiguration(file);
+        configuration.set("value", 1);
+        configuration.save();
+
+        assertEquals("rw-rw-r--", PosixFilePermissions.toString(Files.getPosixFilePermissions(file.toPath())));
+
+        File created = new File(folder.getRoot(), "created.yml");
+        configuration.save(created);
+        assertEquals("rw-r--r--", PosixFilePermissions.toString(Files.getPosixFilePermissions(created.toPath())));
+    }
+
+    @Test
+    public void savingThroughALinkReplacesTheFileItPointsAt() throws Exception {
+        File real = folder.newFile("real.yml");
+        Path link = new File(folder.newFolder("links"), "config.yml").toPath();
+        try {
+            Files.createSymbolicLink(link, real.toPath());
+        } catch (UnsupportedOperationException | IOException e) {
+            assumeNoException(e);
+        }
+        SmartYamlConfiguration configuration = new SmartYamlConfiguration(link.toFile());
+        configuration.set("value", 1);
+        configuration.save();
+
+        assertTrue(Files.isSymbolicLink(link));
+        assertEquals(1, new SmartYamlConfiguration(real).getInt("value"));
+    }
+
+}
@@ -0,0 +1,88 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import com.tealcube.minecraft.bukkit.config.VersionedSmartYamlConfiguration.BackupMode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class VersionedSmartYamlConfigurationTest {
+
+    private static final String LOCAL = "version: 2.0.0\nx: 1\n";
+    private static final String DEFAULTS = "version: 1.0.0\nx: 1\ny: 2\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void backupsAreNamedAfterTheWholeFileName() throws Exception {
+        for (String name : new String[]{"config.yml", "config.yaml", "config", "yml"}) {
+            for (BackupMode mode : BackupMode.values()) {
+                File directory = folder.newFolder();
+                File file = write(new File(directory, name), LOCAL);
+                File defaults = write(new File(directory, "defaults"), DEFAULTS);
+                VersionedSmartYamlConfiguration configuration = new VersionedSmartYamlConfiguration(file, defaults,
+                        VersionedConfiguration.VersionUpdateType.BACKUP_AND_UPDATE);
+                configuration.setBackupMode(mode);
+
+                UpdateReport report = configuration.updateWithReport();
+
+                String message = name + " " + mode;
+                assertTrue(message, report.isSuccessful());
+                assertTrue(message, report.getBackup().getName().startsWith(name + ".backup"));
+                assertEquals(message, LOCAL, read(report.getBackup()));
+                assertEquals(message, 2, new SmartYamlConfiguration(file).getInt("y"));
+            }
+        }
+    }
+
+    private static File write(File file, String contents) throws Exception {
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String read(File file) throws Exception {
+        if (!file.getName().endsWith(".gz")) {
+            return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        }
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file.toPath()))) {
+            byte[] buffer = new byte[LOCAL.length() * 4];
+            int length = 0;
+            for (int read; (read = in.read(buffer, length, buffer.length - length)) > 0; ) {
+                length += read;
+            }
+            return new String(buffer, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+}
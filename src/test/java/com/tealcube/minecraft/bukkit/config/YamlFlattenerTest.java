@@ -0,0 +1,82 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Teal Cube Games
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.tealcube.minecraft.bukkit.config;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class YamlFlattenerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void streamsPlainFiles() throws Exception {
+        File file = write("mobs:\n  zombie:\n    health: 20\n    drops: [bone, flesh]\nmotd: hi\n");
+
+        assertNotNull(YamlFlattener.flatten(file, "config.", '.', null));
+        assertSameAsTree(file);
+    }
+
+    @Test
+    public void leavesKeysHoldingTheSeparatorToTheTree() throws Exception {
+        String[] documents = {
+                "a.b: 1\na:\n  b: 2\n",
+                "a:\n  b: 2\na.b: 1\n",
+                "a: 1\na.c: 2\n",
+                "a:\n  b.c: 1\n  b:\n    c: 2\n",
+                "1.5: x\n",
+        };
+        for (String document : documents) {
+            File file = write(document);
+
+            assertNull(document, YamlFlattener.flatten(file, "config.", '.', null));
+            assertSameAsTree(file);
+        }
+    }
+
+    private static void assertSameAsTree(File file) {
+        MasterConfiguration streamed = MasterConfiguration.loadFromFiles(file);
+        MasterConfiguration tree = MasterConfiguration.loadFromFiles(new SmartYamlConfiguration(file));
+        assertEquals(tree.getKeys(), streamed.getKeys());
+        for (String key : tree.getKeys()) {
+            assertEquals(key, tree.get(key, null), streamed.get(key, null));
+        }
+    }
+
+    private File write(String contents) throws Exception {
+        File file = new File(folder.getRoot(), "config.yml");
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+}